@@ -0,0 +1,71 @@
+package enigma;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/** Benchmarks of reading a configuration: parsing its text, and loading
+ *  it through its compiled copy as Main does, for various alphabet sizes
+ *  and numbers of rotors.
+ *  @author
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ConfigBenchmark {
+
+    /** Number of characters in the alphabet. */
+    @Param({ "26", "62" })
+    public int alphabetSize;
+
+    /** Number of rotor slots, including the reflector's. */
+    @Param({ "3", "5", "8" })
+    public int rotors;
+
+    /** Write the configuration file, and load it once so that its
+     *  compiled copy exists. */
+    @Setup
+    public void setUp() throws IOException {
+        _text = Fixtures.configText(alphabetSize, rotors);
+        _file = File.createTempFile("bench", ".conf");
+        Files.write(_file.toPath(), _text.getBytes(StandardCharsets.UTF_8));
+        Configuration.load(_file.getPath());
+    }
+
+    /** Remove the files setUp made. */
+    @TearDown
+    public void tearDown() {
+        new File(_file.getPath() + Configuration.COMPILED_SUFFIX).delete();
+        _file.delete();
+    }
+
+    /** Parse the configuration text. */
+    @Benchmark
+    public Configuration parse() {
+        return Configuration.read(new Scanner(_text));
+    }
+
+    /** Load the configuration file through its compiled copy. */
+    @Benchmark
+    public Configuration load() {
+        return Configuration.load(_file.getPath());
+    }
+
+    /** The configuration text. */
+    private String _text;
+    /** The file holding it. */
+    private File _file;
+}
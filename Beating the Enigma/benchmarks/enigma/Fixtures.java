@@ -0,0 +1,121 @@
+package enigma;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Scanner;
+
+/** Machines, configurations and texts of a given size for the
+ *  benchmarks.  Everything is generated from a fixed seed, so runs
+ *  measure the same work.
+ *  @author
+ */
+final class Fixtures {
+
+    /** Not instantiable. */
+    private Fixtures() {
+    }
+
+    /** Return an alphabet of the first SIZE characters of ALPHABET_CHARS,
+     *  all of which the configuration file format accepts in cycles. */
+    static Alphabet alphabet(int size) {
+        if (size < 2 || size > ALPHABET_CHARS.length() || size % 2 != 0) {
+            throw new IllegalArgumentException("bad alphabet size " + size);
+        }
+        return new Alphabet(ALPHABET_CHARS.substring(0, size));
+    }
+
+    /** Return the text of a configuration file for machines with an
+     *  alphabet of SIZE characters and SLOTS rotor slots: a reflector
+     *  and SLOTS - 1 moving rotors, each with random wiring and one
+     *  notch. */
+    static String configText(int size, int slots) {
+        Alphabet alphabet = alphabet(size);
+        Random random = new Random(SEED);
+        StringBuilder text = new StringBuilder();
+        text.append(ALPHABET_CHARS, 0, size).append('\n');
+        text.append(' ').append(slots).append(' ').append(slots - 1)
+            .append('\n');
+        for (int k = 1; k < slots; k++) {
+            text.append(" R").append(k).append(" M")
+                .append(alphabet.toChar(random.nextInt(size))).append(' ')
+                .append(cycles(alphabet, random, false)).append('\n');
+        }
+        text.append(" B R ").append(cycles(alphabet, random, true))
+            .append('\n');
+        return text.toString();
+    }
+
+    /** Return the configuration described by configText(SIZE, SLOTS). */
+    static Configuration config(int size, int slots) {
+        return Configuration.read(new Scanner(configText(size, slots)));
+    }
+
+    /** Return the names of the rotors of config(SIZE, SLOTS), in the
+     *  order they are inserted: reflector first. */
+    static String[] rotorNames(int slots) {
+        String[] names = new String[slots];
+        names[0] = "B";
+        for (int k = 1; k < slots; k++) {
+            names[k] = "R" + k;
+        }
+        return names;
+    }
+
+    /** Return a machine made from config(SIZE, SLOTS) with all its rotors
+     *  inserted and set to random settings. */
+    static Machine machine(int size, int slots) {
+        Machine machine = config(size, slots).newMachine();
+        machine.insertRotors(rotorNames(slots));
+        Random random = new Random(SEED);
+        for (int i = 1; i < slots; i++) {
+            machine.setPosition(i, random.nextInt(size));
+        }
+        return machine;
+    }
+
+    /** Return LEN random characters of an alphabet of SIZE characters. */
+    static String text(int size, int len) {
+        Random random = new Random(SEED);
+        char[] text = new char[len];
+        for (int i = 0; i < len; i++) {
+            text[i] = ALPHABET_CHARS.charAt(random.nextInt(size));
+        }
+        return new String(text);
+    }
+
+    /** Return a random permutation of the indices of ALPHABET in cycle
+     *  notation, chosen with RANDOM.  If PAIRS, it is a product of
+     *  disjoint transpositions covering every index, as for a
+     *  reflector. */
+    static String cycles(Alphabet alphabet, Random random, boolean pairs) {
+        List<Character> chars = new ArrayList<>();
+        for (int c = 0; c < alphabet.size(); c++) {
+            chars.add(alphabet.toChar(c));
+        }
+        Collections.shuffle(chars, random);
+        StringBuilder result = new StringBuilder();
+        int i = 0;
+        while (i < chars.size()) {
+            int len = pairs ? 2
+                : Math.min(chars.size() - i, 1 + random.nextInt(MAX_CYCLE));
+            result.append('(');
+            for (int j = 0; j < len; j++) {
+                result.append(chars.get(i++));
+            }
+            result.append(')');
+        }
+        return result.toString();
+    }
+
+    /** Characters the alphabets are drawn from. */
+    static final String ALPHABET_CHARS =
+        "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
+
+    /** Seed for everything random. */
+    private static final long SEED = 1918;
+
+    /** Longest cycle in a rotor's wiring. */
+    private static final int MAX_CYCLE = 12;
+}
@@ -0,0 +1,67 @@
+package enigma;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/** Benchmarks of Machine.convert, one character at a time and over a
+ *  long message, for various alphabet sizes and numbers of rotors.
+ *  The machine keeps stepping from call to call, so every rotor state is
+ *  visited over a run, as in real use.
+ *  @author
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MachineBenchmark {
+
+    /** Number of characters in the alphabet. */
+    @Param({ "26", "62" })
+    public int alphabetSize;
+
+    /** Number of rotor slots, including the reflector's. */
+    @Param({ "3", "5", "8" })
+    public int rotors;
+
+    /** Number of characters in the long message. */
+    @Param({ "65536" })
+    public int messageLength;
+
+    /** Build the fixtures. */
+    @Setup
+    public void setUp() {
+        _machine = Fixtures.machine(alphabetSize, rotors);
+        _message = Fixtures.text(alphabetSize, messageLength).toCharArray();
+        _out = new char[_message.length];
+    }
+
+    /** Convert one character. */
+    @Benchmark
+    public int convertChar() {
+        _next = _next + 1 == alphabetSize ? 0 : _next + 1;
+        return _machine.convert(_next);
+    }
+
+    /** Convert the long message. */
+    @Benchmark
+    public char[] convertMessage() {
+        _machine.convert(_message, 0, _message.length, _out, 0);
+        return _out;
+    }
+
+    /** The machine. */
+    private Machine _machine;
+    /** The long message. */
+    private char[] _message;
+    /** Its conversion. */
+    private char[] _out;
+    /** The next index to convert. */
+    private int _next;
+}
@@ -0,0 +1,87 @@
+package enigma;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/** Benchmarks of the work Main.printMessageLine does for one line of a
+ *  message that is too short to be split across processors: convert it
+ *  in place, then write it in groups of five through a GroupWriter.
+ *  Output goes to a channel that discards it, so only formatting and
+ *  encoding are measured.
+ *  @author
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class OutputBenchmark {
+
+    /** Number of characters in the line. */
+    @Param({ "80", "4096" })
+    public int lineLength;
+
+    /** Build the fixtures. */
+    @Setup
+    public void setUp() {
+        _machine = Fixtures.machine(ALPHABET_SIZE, SLOTS);
+        _line = Fixtures.text(ALPHABET_SIZE, lineLength).toCharArray();
+        _buffer = new char[_line.length];
+        _output = new GroupWriter(new Discard());
+    }
+
+    /** Group and write the line, unconverted. */
+    @Benchmark
+    public void printGrouped() {
+        _output.printGrouped(_line, 0, _line.length);
+    }
+
+    /** Convert the line and write it, as printMessageLine does. */
+    @Benchmark
+    public void printMessageLine() {
+        System.arraycopy(_line, 0, _buffer, 0, _line.length);
+        int len = _machine.convert(_buffer, 0, _line.length, _buffer, 0);
+        _output.printGrouped(_buffer, 0, len);
+    }
+
+    /** A channel that accepts and drops everything written to it. */
+    private static class Discard implements WritableByteChannel {
+        @Override
+        public int write(ByteBuffer src) {
+            int n = src.remaining();
+            src.position(src.limit());
+            return n;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /** Alphabet size of the machine. */
+    private static final int ALPHABET_SIZE = 26;
+    /** Rotor slots of the machine. */
+    private static final int SLOTS = 5;
+
+    /** The machine. */
+    private Machine _machine;
+    /** The message line. */
+    private char[] _line;
+    /** Room to convert it. */
+    private char[] _buffer;
+    /** Where it is written. */
+    private GroupWriter _output;
+}
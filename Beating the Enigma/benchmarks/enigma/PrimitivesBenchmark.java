@@ -0,0 +1,108 @@
+package enigma;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/** Benchmarks of the per-character building blocks: Alphabet.toInt,
+ *  Permutation.permute and invert, and Rotor.convertForward and
+ *  convertBackward.  Each benchmark runs over a whole precomputed text,
+ *  so the figures are per TEXT_LENGTH characters.
+ *  @author
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PrimitivesBenchmark {
+
+    /** Number of characters in the alphabet. */
+    @Param({ "26", "62" })
+    public int alphabetSize;
+
+    /** Number of characters converted per benchmark call. */
+    static final int TEXT_LENGTH = 4096;
+
+    /** Build the fixtures. */
+    @Setup
+    public void setUp() {
+        _alphabet = Fixtures.alphabet(alphabetSize);
+        _rotor = Fixtures.config(alphabetSize, 2).rotors().get(0);
+        _permutation = _rotor.permutation();
+        _chars = Fixtures.text(alphabetSize, TEXT_LENGTH).toCharArray();
+        _indices = new int[_chars.length];
+        for (int i = 0; i < _chars.length; i++) {
+            _indices[i] = _alphabet.toInt(_chars[i]);
+        }
+    }
+
+    /** Look up the index of each character of the text. */
+    @Benchmark
+    public int alphabetToInt() {
+        int sum = 0;
+        for (char ch : _chars) {
+            sum += _alphabet.toInt(ch);
+        }
+        return sum;
+    }
+
+    /** Apply a permutation to each index of the text. */
+    @Benchmark
+    public int permute() {
+        int sum = 0;
+        for (int c : _indices) {
+            sum += _permutation.permute(c);
+        }
+        return sum;
+    }
+
+    /** Apply the inverse of a permutation to each index of the text. */
+    @Benchmark
+    public int invert() {
+        int sum = 0;
+        for (int c : _indices) {
+            sum += _permutation.invert(c);
+        }
+        return sum;
+    }
+
+    /** Pass each index of the text forward through a rotor, at a shift
+     *  that changes with every character as it would in a machine. */
+    @Benchmark
+    public int convertForward() {
+        int sum = 0, shift = 0;
+        for (int c : _indices) {
+            sum += _rotor.convertForward(c, shift);
+            shift = shift + 1 == alphabetSize ? 0 : shift + 1;
+        }
+        return sum;
+    }
+
+    /** Pass each index of the text backward through a rotor. */
+    @Benchmark
+    public int convertBackward() {
+        int sum = 0, shift = 0;
+        for (int c : _indices) {
+            sum += _rotor.convertBackward(c, shift);
+            shift = shift + 1 == alphabetSize ? 0 : shift + 1;
+        }
+        return sum;
+    }
+
+    /** The alphabet. */
+    private Alphabet _alphabet;
+    /** A moving rotor. */
+    private Rotor _rotor;
+    /** Its permutation. */
+    private Permutation _permutation;
+    /** The text. */
+    private char[] _chars;
+    /** The text, as alphabet indices. */
+    private int[] _indices;
+}
@@ -1,5 +1,7 @@
 package enigma;
 
+import java.util.Arrays;
+
 /** An alphabet of encodable characters.  Provides a mapping from characters
  *  to and from indices into the alphabet.
  *  @author Deep Dayaramani
@@ -10,6 +12,28 @@ class Alphabet {
      *  K (numbering from 0). No character may be duplicated. */
     Alphabet(String chars) {
         _chars = chars;
+        _charArray = chars.toCharArray();
+        char lo = Character.MAX_VALUE, hi = Character.MIN_VALUE;
+        for (char ch : _charArray) {
+            lo = (char) Math.min(lo, ch);
+            hi = (char) Math.max(hi, ch);
+        }
+        _singleByte = hi <= MAX_BYTE_CHAR;
+        if (_charArray.length == 0) {
+            _first = 1;
+            _dense = new int[0];
+        } else if (hi - lo < DENSE_LIMIT) {
+            _first = lo;
+            _dense = new int[hi - lo + 1];
+            Arrays.fill(_dense, -1);
+            for (int i = _charArray.length - 1; i >= 0; i--) {
+                _dense[_charArray[i] - lo] = i;
+            }
+        } else {
+            _first = 0;
+            _dense = null;
+            compileSparse();
+        }
     }
 
     /** A default alphabet of all upper-case characters. */
@@ -17,9 +41,33 @@ class Alphabet {
         this("ABCDEFGHIJKLMNOPQRSTUVWXYZ");
     }
 
+    /** Set up _sorted and _sortedIndex for an alphabet whose characters
+     *  are too spread out for a dense table. */
+    private void compileSparse() {
+        int n = _charArray.length;
+        long[] keyed = new long[n];
+        for (int i = 0; i < n; i++) {
+            keyed[i] = ((long) _charArray[i] << 32) | i;
+        }
+        Arrays.sort(keyed);
+        _sorted = new char[n];
+        _sortedIndex = new int[n];
+        int k = 0;
+        for (int i = 0; i < n; i++) {
+            char ch = (char) (keyed[i] >>> 32);
+            if (k == 0 || _sorted[k - 1] != ch) {
+                _sorted[k] = ch;
+                _sortedIndex[k] = (int) keyed[i];
+                k++;
+            }
+        }
+        _sorted = Arrays.copyOf(_sorted, k);
+        _sortedIndex = Arrays.copyOf(_sortedIndex, k);
+    }
+
     /** Returns the size of the alphabet. */
     int size() {
-        return _chars.length();
+        return _charArray.length;
     }
 
     /** Returns true if CH is in this alphabet. */
@@ -27,19 +75,60 @@ class Alphabet {
         return toInt(ch) >= 0;
     }
 
+    /** Returns true iff every character in this alphabet has a code
+     *  below 256, so that it can be stored in a single byte. */
+    boolean singleByte() {
+        return _singleByte;
+    }
+
     /** Returns character number INDEX in the alphabet, where
      *  0 <= INDEX < size(). */
     char toChar(int index) {
-        return _chars.charAt(index);
+        return _charArray[index];
     }
 
     /** Returns the index of character CH which must be in
-     *  the alphabet. This is the inverse of toChar(). */
+     *  the alphabet. This is the inverse of toChar().  Returns -1 if CH
+     *  is not in the alphabet. */
     int toInt(char ch) {
-        return _chars.indexOf(ch);
+        if (_dense != null) {
+            int k = ch - _first;
+            if (k < 0 || k >= _dense.length) {
+                return -1;
+            }
+            return _dense[k];
+        }
+        int k = Arrays.binarySearch(_sorted, ch);
+        return k < 0 ? -1 : _sortedIndex[k];
     }
 
+    /** Returns my characters, in index order. */
+    @Override
+    public String toString() {
+        return _chars;
+    }
+
+    /** Largest span of character codes for which a dense lookup table
+     *  is used. */
+    private static final int DENSE_LIMIT = 1 << 12;
+
+    /** Largest character code that fits in a single byte. */
+    private static final int MAX_BYTE_CHAR = 0xff;
+
     /** Stores the characters of alphaber in _CHARS.*/
     private String _chars;
+    /** The characters of _CHARS, indexed by position. */
+    private final char[] _charArray;
+    /** The smallest character code covered by _DENSE. */
+    private final int _first;
+    /** Maps each character code minus _FIRST to its index, or -1.  Null
+     *  for sparse alphabets. */
+    private final int[] _dense;
+    /** True iff every character code is at most MAX_BYTE_CHAR. */
+    private final boolean _singleByte;
+    /** For sparse alphabets, my distinct characters in increasing order. */
+    private char[] _sorted;
+    /** For sparse alphabets, the index of each character in _SORTED. */
+    private int[] _sortedIndex;
 
 }
@@ -0,0 +1,56 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import static enigma.TestUtils.*;
+
+/** The suite of all JUnit tests for the Alphabet class.
+ *  @author
+ */
+public class AlphabetTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5);
+
+    /* ***** TESTING UTILITIES ***** */
+
+    /** Check that ALPHA maps each character of CHARS to its position and
+     *  back, and rejects each character of ABSENT. */
+    private void checkAlphabet(Alphabet alpha, String chars, String absent) {
+        assertEquals(chars.length(), alpha.size());
+        for (int i = 0; i < chars.length(); i += 1) {
+            char c = chars.charAt(i);
+            assertEquals(msg("toInt", "'%c'", c), i, alpha.toInt(c));
+            assertEquals(msg("toChar", "%d", i), c, alpha.toChar(i));
+            assertTrue(alpha.contains(c));
+        }
+        for (int i = 0; i < absent.length(); i += 1) {
+            char c = absent.charAt(i);
+            assertEquals(msg("toInt", "'%c'", c), -1, alpha.toInt(c));
+            assertFalse(alpha.contains(c));
+        }
+    }
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void checkDefault() {
+        checkAlphabet(UPPER, UPPER_STRING, "az@[ 0\u00c0");
+    }
+
+    @Test
+    public void checkDigits() {
+        checkAlphabet(new Alphabet("012345"), "012345", "6/ A");
+    }
+
+    @Test
+    public void checkSparse() {
+        String chars = "A\u4e2d0\uffee.z";
+        checkAlphabet(new Alphabet(chars), chars, "BZ\u4e2e\uffef\u0000");
+    }
+
+}
@@ -0,0 +1,433 @@
+package enigma;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import static enigma.EnigmaException.*;
+
+/** Finds pairs of messages that are "in depth", after the Banburismus
+ *  procedure.  Messages sent under the same day key with different
+ *  message settings are often enciphered by the same sequence of machine
+ *  states, displaced by some number of key presses.  Slid against each
+ *  other by that offset, the two ciphertexts agree wherever their
+ *  plaintexts do, which is much more often than random letters agree.
+ *  Each pair of messages is scored at each offset within a bound by the
+ *  weight of evidence, in decibans, that it is in depth there, and the
+ *  best-scoring pairs are reported with their offsets.  These constrain
+ *  the relative settings of the fast rotor, and hence the keyspace that
+ *  the heavier searches must cover.  When the starting settings of the
+ *  fast rotor are known from the indicators, the depths also weigh
+ *  against rotors whose turnover notches they rule out as the fast
+ *  rotor.
+ *
+ *  All messages are packed into one char array of alphabet indices.  The
+ *  rows of the triangular table of pairs are spread over the threads of a
+ *  ForkJoinPool, and each task keeps only its best K results, so memory
+ *  does not grow with the number of pairs.
+ *  @author
+ */
+class Banburismus {
+
+    /** A pair of messages found in depth. */
+    static final class Depth implements Comparable<Depth> {
+
+        /** A depth between messages FIRST and SECOND at offset OFFSET, in
+         *  which MATCHES of OVERLAP aligned letters agreed, scoring
+         *  SCORE. */
+        Depth(int first, int second, int offset, int matches, int overlap,
+              double score) {
+            _first = first;
+            _second = second;
+            _offset = offset;
+            _matches = matches;
+            _overlap = overlap;
+            _score = score;
+        }
+
+        /** Return the number of the first message. */
+        int first() {
+            return _first;
+        }
+
+        /** Return the number of the second message. */
+        int second() {
+            return _second;
+        }
+
+        /** Return the offset:  letter k of the first message lies against
+         *  letter k + offset() of the second. */
+        int offset() {
+            return _offset;
+        }
+
+        /** Return the number of aligned letters that agree. */
+        int matches() {
+            return _matches;
+        }
+
+        /** Return the number of aligned letters. */
+        int overlap() {
+            return _overlap;
+        }
+
+        /** Return the weight of evidence for this depth, in decibans. */
+        double score() {
+            return _score;
+        }
+
+        @Override
+        public int compareTo(Depth other) {
+            return Double.compare(_score, other._score);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d %d %d %d/%d %.1f", _first, _second,
+                                 _offset, _matches, _overlap, _score);
+        }
+
+        /** The messages. */
+        private final int _first, _second;
+        /** The offset. */
+        private final int _offset;
+        /** The agreements. */
+        private final int _matches;
+        /** The aligned letters. */
+        private final int _overlap;
+        /** The score. */
+        private final double _score;
+    }
+
+    /** A scorer for MESSAGES, whose characters other than whitespace must
+     *  be in ALPHABET. */
+    Banburismus(Alphabet alphabet, List<String> messages) {
+        _size = alphabet.size();
+        _starts = new int[messages.size() + 1];
+        int total = 0;
+        for (String message : messages) {
+            total += message.length();
+        }
+        _letters = new char[total];
+        int len = 0;
+        for (int m = 0; m < messages.size(); m++) {
+            for (int c : Bombe.indices(alphabet, messages.get(m))) {
+                _letters[len++] = (char) c;
+            }
+            _starts[m + 1] = len;
+        }
+        if (_size > 1) {
+            setLanguageCoincidence(defaultCoincidence(_size));
+        }
+    }
+
+    /** Return the default language coincidence for an alphabet of SIZE
+     *  > 1 letters:  that of English when it is greater than 1 / SIZE,
+     *  and otherwise one that exceeds 1 / SIZE by the same factor as
+     *  English does for 26 letters, kept below 1. */
+    static double defaultCoincidence(int size) {
+        if (ENGLISH > 1.0 / size) {
+            return ENGLISH;
+        }
+        return Math.min(ENGLISH * ENGLISH_SIZE / size,
+                        (1 + 1.0 / size) / 2);
+    }
+
+    /** Try offsets from -MAXOFFSET to MAXOFFSET. */
+    void setMaxOffset(int maxOffset) {
+        if (maxOffset < 0) {
+            throw error("maximum offset must not be negative");
+        }
+        _maxOffset = maxOffset;
+    }
+
+    /** Ignore alignments of fewer than MINOVERLAP letters. */
+    void setMinOverlap(int minOverlap) {
+        _minOverlap = Math.max(1, minOverlap);
+    }
+
+    /** Take KAPPA to be the chance that two letters of plaintext, chosen
+     *  at random, agree. */
+    void setLanguageCoincidence(double kappa) {
+        if (kappa <= 1.0 / _size || kappa >= 1) {
+            throw error("language coincidence must be between 1/%d and 1",
+                        _size);
+        }
+        _matchWeight = DECIBANS * Math.log10(kappa * _size);
+        _mismatchWeight =
+            DECIBANS * Math.log10((1 - kappa) / (1 - 1.0 / _size));
+    }
+
+    /** Return the number of messages. */
+    int numMessages() {
+        return _starts.length - 1;
+    }
+
+    /** Return the (at most) K best-scoring depths, one per pair of
+     *  messages at its best offset, best first, computed on POOL. */
+    List<Depth> score(int k, ForkJoinPool pool) {
+        if (k <= 0) {
+            throw error("number of results must be positive");
+        }
+        PriorityQueue<Depth> best =
+            pool.invoke(new RowTask(this, k, 0, numMessages()));
+        List<Depth> result = new ArrayList<>(best);
+        Collections.sort(result, Collections.reverseOrder());
+        return result;
+    }
+
+    /** Return the (at most) K best-scoring depths, computed on the common
+     *  pool. */
+    List<Depth> score(int k) {
+        return score(k, ForkJoinPool.commonPool());
+    }
+
+    /** Return the best depth of messages A and B, or null if no offset
+     *  aligns enough letters. */
+    Depth score(int a, int b) {
+        int aStart = _starts[a];
+        int aLen = _starts[a + 1] - aStart;
+        int bStart = _starts[b];
+        int bLen = _starts[b + 1] - bStart;
+        Depth best = null;
+        for (int d = -_maxOffset; d <= _maxOffset; d++) {
+            int lo = Math.max(0, -d);
+            int hi = Math.min(aLen, bLen - d);
+            if (hi - lo < _minOverlap) {
+                continue;
+            }
+            int matches = 0;
+            int off = bStart + d - aStart;
+            for (int i = aStart + lo; i < aStart + hi; i++) {
+                if (_letters[i] == _letters[i + off]) {
+                    matches += 1;
+                }
+            }
+            double score = matches * _matchWeight
+                + (hi - lo - matches) * _mismatchWeight;
+            if (best == null || score > best.score()) {
+                best = new Depth(a, b, d, matches, hi - lo, score);
+            }
+        }
+        return best;
+    }
+
+    /** Return the weight of evidence, in decibans, against each
+     *  rotating rotor of CONFIG being the fast (rightmost) rotor, given
+     *  DEPTHS, least refuted first.  STARTS[m] is the index of the
+     *  setting of the fast rotor at the start of message m, as read from
+     *  its indicator, or -1 if unknown; the other rotors are taken to
+     *  start alike in all messages.  A depth whose offset agrees with the
+     *  starts of its two messages counts, with its score, against every
+     *  rotor with a notch that the fast rotor passes between those
+     *  starts, since the middle rotor would then differ and the messages
+     *  could not be in depth. */
+    static Map<String, Double> rotorEvidence(List<Depth> depths,
+                                             Configuration config,
+                                             int[] starts) {
+        int size = config.alphabet().size();
+        List<Rotor> candidates = new ArrayList<>();
+        Map<String, Double> against = new HashMap<>();
+        for (Rotor rotor : config.rotors()) {
+            if (rotor.rotates()) {
+                candidates.add(rotor);
+                against.put(rotor.name(), 0.0);
+            }
+        }
+        for (Depth depth : depths) {
+            int a = starts[depth.first()];
+            int b = starts[depth.second()];
+            int d = depth.offset();
+            if (a < 0 || b < 0 || depth.score() <= 0
+                || Math.floorMod(a - b - d, size) != 0) {
+                continue;
+            }
+            int from = d > 0 ? b : a;
+            int presses = Math.min(Math.abs(d), size);
+            for (Rotor rotor : candidates) {
+                for (int p = 0; p < presses; p++) {
+                    if (rotor.atNotch((from + p) % size)) {
+                        against.merge(rotor.name(), -depth.score(),
+                                      Double::sum);
+                        break;
+                    }
+                }
+            }
+        }
+        List<Map.Entry<String, Double>> entries =
+            new ArrayList<>(against.entrySet());
+        entries.sort(Collections.reverseOrder(Map.Entry.comparingByValue()));
+        Map<String, Double> result = new LinkedHashMap<>();
+        for (Map.Entry<String, Double> entry : entries) {
+            result.put(entry.getKey(), entry.getValue());
+        }
+        return result;
+    }
+
+    /** Add DEPTH, if not null, to BEST, then drop its worst member if it
+     *  has more than K. */
+    private static void offer(PriorityQueue<Depth> best, int k,
+                              Depth depth) {
+        if (depth == null) {
+            return;
+        }
+        best.add(depth);
+        if (best.size() > k) {
+            best.poll();
+        }
+    }
+
+    /** Scores the pairs in a range of rows of the table of pairs, yielding
+     *  the best. */
+    private static class RowTask extends RecursiveTask<PriorityQueue<Depth>> {
+
+        /** A task that scores pairs (a, b) of SCORER's messages with
+         *  LO <= a < HI and a < b, keeping the K best. */
+        RowTask(Banburismus scorer, int k, int lo, int hi) {
+            _scorer = scorer;
+            _k = k;
+            _lo = lo;
+            _hi = hi;
+        }
+
+        @Override
+        protected PriorityQueue<Depth> compute() {
+            if (_hi - _lo > 1) {
+                int mid = (_lo + _hi) >>> 1;
+                RowTask left = new RowTask(_scorer, _k, _lo, mid);
+                left.fork();
+                PriorityQueue<Depth> best =
+                    new RowTask(_scorer, _k, mid, _hi).compute();
+                for (Depth depth : left.join()) {
+                    offer(best, _k, depth);
+                }
+                return best;
+            }
+            PriorityQueue<Depth> best = new PriorityQueue<>();
+            int n = _scorer.numMessages();
+            for (int a = _lo; a < _hi; a++) {
+                for (int b = a + 1; b < n; b++) {
+                    offer(best, _k, _scorer.score(a, b));
+                }
+            }
+            return best;
+        }
+
+        /** The scorer I am part of. */
+        private final Banburismus _scorer;
+        /** The number of results to keep. */
+        private final int _k;
+        /** The range of rows I score. */
+        private final int _lo, _hi;
+    }
+
+    /** Score the messages in a file, as specified by ARGS, which are
+     *  [-s] CONFIG [INPUT [K [MAXOFFSET]]].  CONFIG names a configuration
+     *  file and INPUT a file holding one ciphertext per line (by default,
+     *  the standard input).  Prints the K (by default 20) best depths,
+     *  one per line, as "FIRST SECOND OFFSET MATCHES/OVERLAP DECIBANS",
+     *  with messages numbered from 0 in input order.  With -s, each line
+     *  begins with the starting setting of the fast rotor, from the
+     *  message's indicator, and a blank; the depths are then followed by
+     *  an empty line and a line "ROTOR DECIBANS" for each rotating rotor,
+     *  giving the evidence against it being the fast rotor, as for
+     *  rotorEvidence. */
+    public static void main(String... args) {
+        try {
+            boolean starts = args.length > 0 && args[0].equals("-s");
+            int a = starts ? 1 : 0;
+            if (args.length - a < 1 || args.length - a > 4) {
+                throw error("usage: [-s] CONFIG [INPUT [K [MAXOFFSET]]]");
+            }
+            Configuration config = Configuration.read(args[a]);
+            Alphabet alphabet = config.alphabet();
+            List<String> messages = new ArrayList<>();
+            List<Integer> firsts = new ArrayList<>();
+            try (LineReader input = args.length > a + 1
+                 ? LineReader.open(args[a + 1]) : LineReader.of(System.in)) {
+                while (input.hasNextLine()) {
+                    String line = input.nextLine().trim();
+                    if (line.isEmpty()) {
+                        continue;
+                    }
+                    if (starts) {
+                        int c = alphabet.toInt(line.charAt(0));
+                        if (c < 0 || line.length() < 2
+                            || !Character.isWhitespace(line.charAt(1))) {
+                            throw error("bad starting setting: %s", line);
+                        }
+                        firsts.add(c);
+                        line = line.substring(2);
+                    }
+                    messages.add(line);
+                }
+            }
+            Banburismus scorer = new Banburismus(alphabet, messages);
+            int k = DEFAULT_RESULTS;
+            try {
+                if (args.length > a + 2) {
+                    k = Integer.parseInt(args[a + 2]);
+                }
+                if (args.length > a + 3) {
+                    scorer.setMaxOffset(Integer.parseInt(args[a + 3]));
+                }
+            } catch (NumberFormatException excp) {
+                throw error("bad number: %s", excp.getMessage());
+            }
+            List<Depth> depths = scorer.score(k);
+            for (Depth depth : depths) {
+                System.out.println(depth);
+            }
+            if (starts) {
+                int[] first = new int[firsts.size()];
+                for (int m = 0; m < first.length; m++) {
+                    first[m] = firsts.get(m);
+                }
+                System.out.println();
+                for (Map.Entry<String, Double> entry
+                         : rotorEvidence(depths, config, first).entrySet()) {
+                    System.out.printf("%s %.1f%n", entry.getKey(),
+                                      entry.getValue());
+                }
+            }
+            return;
+        } catch (EnigmaException excp) {
+            System.err.printf("Error: %s%n", excp.getMessage());
+        }
+        System.exit(1);
+    }
+
+    /** Chance that two letters of English text agree. */
+    static final double ENGLISH = 0.0667;
+    /** Size of the alphabet ENGLISH is measured in. */
+    static final int ENGLISH_SIZE = 26;
+    /** Default largest offset tried. */
+    static final int DEFAULT_MAX_OFFSET = 25;
+    /** Default smallest overlap scored. */
+    static final int DEFAULT_MIN_OVERLAP = 20;
+    /** Default number of results printed. */
+    private static final int DEFAULT_RESULTS = 20;
+    /** Decibans per power of ten of likelihood ratio. */
+    private static final double DECIBANS = 10;
+
+    /** The size of the alphabet. */
+    private final int _size;
+    /** The letters of all messages, as alphabet indices. */
+    private final char[] _letters;
+    /** Message m occupies _letters[_starts[m] .. _starts[m + 1] - 1]. */
+    private final int[] _starts;
+    /** Largest offset tried. */
+    private int _maxOffset = DEFAULT_MAX_OFFSET;
+    /** Smallest overlap scored. */
+    private int _minOverlap = DEFAULT_MIN_OVERLAP;
+    /** Score of an agreement. */
+    private double _matchWeight;
+    /** Score of a disagreement. */
+    private double _mismatchWeight;
+}
@@ -0,0 +1,122 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import static enigma.TestUtils.*;
+import static enigma.CoincidenceSearchTest.*;
+
+/** The suite of all JUnit tests for the Banburismus class.
+ *  @author
+ */
+public class BanburismusTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(10);
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void checkPair() {
+        Banburismus scorer =
+            new Banburismus(UPPER, Arrays.asList("QABCDEFG", "ABCDXFGZ"));
+        scorer.setMaxOffset(2);
+        scorer.setMinOverlap(4);
+        Banburismus.Depth depth = scorer.score(0, 1);
+        assertEquals(-1, depth.offset());
+        assertEquals(6, depth.matches());
+        assertEquals(7, depth.overlap());
+        assertTrue(depth.score() > 0);
+    }
+
+    /** Messages 0 and 2 are in depth: they share a rotor order, and the
+     *  fast rotor of message 2 starts five places ahead. */
+    @Test
+    public void checkDepthFound() {
+        Configuration config = threeRotors();
+        String rotated = PLAIN.substring(PLAIN.length() / 2)
+            + " " + PLAIN.substring(0, PLAIN.length() / 2);
+        List<String> messages = new ArrayList<>();
+        messages.add(encrypt(config, "* B I II III MAC",
+                             PLAIN + PLAIN + PLAIN));
+        messages.add(encrypt(config, "* B II III I HQK", PLAIN));
+        messages.add(encrypt(config, "* B I II III MAH",
+                             rotated + rotated + rotated));
+        messages.add(encrypt(config, "* B III I II ZZZ", rotated));
+        Banburismus scorer = new Banburismus(UPPER, messages);
+        List<Banburismus.Depth> best =
+            scorer.score(2, new ForkJoinPool(2));
+        assertEquals(2, best.size());
+        Banburismus.Depth top = best.get(0);
+        assertEquals(0, top.first());
+        assertEquals(2, top.second());
+        assertEquals(-5, top.offset());
+        assertTrue(top.score() > best.get(1).score());
+    }
+
+    @Test
+    public void checkKeepsBest() {
+        List<String> messages = new ArrayList<>();
+        for (int m = 0; m < 40; m++) {
+            messages.add(encrypt(threeRotors(), "* B I II III A"
+                                 + UPPER.toChar(m % UPPER.size()) + "A",
+                                 PLAIN.substring(m)));
+        }
+        Banburismus scorer = new Banburismus(UPPER, messages);
+        List<Banburismus.Depth> all = new ArrayList<>();
+        for (int a = 0; a < messages.size(); a++) {
+            for (int b = a + 1; b < messages.size(); b++) {
+                all.add(scorer.score(a, b));
+            }
+        }
+        all.sort(null);
+        List<Banburismus.Depth> best = scorer.score(10);
+        assertEquals(10, best.size());
+        for (int i = 0; i < best.size(); i++) {
+            assertEquals(all.get(all.size() - 1 - i).score(),
+                         best.get(i).score(), 1e-9);
+        }
+    }
+
+    @Test
+    public void checkSmallAlphabet() {
+        Alphabet digits = new Alphabet("012345");
+        Banburismus scorer = new Banburismus(
+            digits, Arrays.asList("0123450123", "1234501234"));
+        scorer.setMinOverlap(5);
+        double kappa = Banburismus.defaultCoincidence(digits.size());
+        assertTrue(kappa > 1.0 / digits.size() && kappa < 1);
+        assertEquals(-1, scorer.score(0, 1).offset());
+        assertEquals(Banburismus.ENGLISH,
+                     Banburismus.defaultCoincidence(UPPER.size()), 0.0);
+    }
+
+    /** The depth of checkDepthFound spans fast-rotor settings C to G,
+     *  passing the notch (E) of rotor II but not those of I or III. */
+    @Test
+    public void checkRotorEvidence() {
+        Configuration config = threeRotors();
+        List<Banburismus.Depth> depths = new ArrayList<>();
+        depths.add(new Banburismus.Depth(0, 2, -5, 100, 300, 40.0));
+        depths.add(new Banburismus.Depth(1, 3, 4, 100, 300, 50.0));
+        int[] starts = { 2, 10, 7, 25 };
+        Map<String, Double> evidence =
+            Banburismus.rotorEvidence(depths, config, starts);
+        assertEquals(3, evidence.size());
+        assertEquals(0.0, evidence.get("I"), 0.0);
+        assertEquals(0.0, evidence.get("III"), 0.0);
+        assertEquals(-40.0, evidence.get("II"), 0.0);
+        List<String> order = new ArrayList<>(evidence.keySet());
+        assertEquals("II", order.get(2));
+    }
+
+}
@@ -0,0 +1,422 @@
+package enigma;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import static enigma.EnigmaException.*;
+
+/** A known-plaintext attack in the manner of the Turing-Welchman bombe.
+ *  A crib (a guess at some of the plaintext) is lined up against the
+ *  ciphertext.  At key press t the machine's plugboard S and rotor stack
+ *  P_t satisfy c_t = S(P_t(S(p_t))), so each crib letter p_t and cipher
+ *  letter c_t are joined, in the menu, by an edge labeled t:  if S(p_t)
+ *  is x then S(c_t) is P_t(x), and vice versa.
+ *
+ *  For each rotor order and setting, the bombe hypothesizes a plug for
+ *  one menu letter and lights every hypothesis it implies, following menu
+ *  edges and the "diagonal board" (S(a) = x exactly when S(x) = a).  The
+ *  lit hypotheses are kept as one bitset per letter.  Implications run
+ *  both ways, so hypotheses fall into classes that are lit all together.
+ *  The class holding the true plugboard never gives a letter two
+ *  plugs.  A setting at which some class is consistent in this sense,
+ *  and plugs together only characters that a settings line can plug
+ *  (see Main.isPlugLetter), is a stop, and is reported along with the
+ *  plugs that class implies.
+ *
+ *  The rotor stack at each key press the crib covers is tabulated once per
+ *  setting with Machine.pressTables.  Rotor orders are spread over the
+ *  threads of a ForkJoinPool.  Rings are taken to be at their defaults.
+ *  @author
+ */
+class Bombe {
+
+    /** A bombe on POOL for machines made from CONFIG, working on
+     *  CIPHERTEXT with CRIB as the plaintext of its characters starting
+     *  at (0-based) position OFFSET.  Whitespace in both is ignored. */
+    Bombe(Configuration config, String ciphertext, String crib, int offset,
+          ForkJoinPool pool) {
+        _config = config;
+        _pool = pool;
+        _template = config.newMachine();
+        Alphabet alphabet = config.alphabet();
+        int[] cipher = indices(alphabet, ciphertext);
+        int[] plain = indices(alphabet, crib);
+        if (offset < 0 || offset + plain.length > cipher.length) {
+            throw error("crib does not fit in the ciphertext");
+        }
+        if (plain.length == 0) {
+            throw error("empty crib");
+        }
+        _offset = offset;
+        _length = plain.length;
+        _pluggable = new boolean[alphabet.size()];
+        for (int a : PlugboardSolver.plugLetters(alphabet)) {
+            _pluggable[a] = true;
+        }
+        buildMenu(plain, Arrays.copyOfRange(cipher, offset,
+                                            offset + plain.length));
+        _orders = CoincidenceSearch.orders(config);
+    }
+
+    /** A bombe on the common pool for machines made from CONFIG, working
+     *  on CIPHERTEXT with CRIB at OFFSET. */
+    Bombe(Configuration config, String ciphertext, String crib,
+          int offset) {
+        this(config, ciphertext, crib, offset, ForkJoinPool.commonPool());
+    }
+
+    /** Return the characters of TEXT, other than whitespace, as indices
+     *  in ALPHABET. */
+    static int[] indices(Alphabet alphabet, String text) {
+        int[] result = new int[text.length()];
+        int len = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char ch = text.charAt(i);
+            if (Character.isWhitespace(ch)) {
+                continue;
+            }
+            result[len] = alphabet.toInt(ch);
+            if (result[len] < 0) {
+                throw error("character %c not in alphabet", ch);
+            }
+            len += 1;
+        }
+        return Arrays.copyOf(result, len);
+    }
+
+    /** Build the menu for crib PLAIN over cipher letters CIPHER, and
+     *  choose the letter with the most edges as the test letter. */
+    private void buildMenu(int[] plain, int[] cipher) {
+        int size = _config.alphabet().size();
+        _first = new int[size + 1];
+        for (int t = 0; t < plain.length; t++) {
+            if (plain[t] == cipher[t]) {
+                throw error("crib letter %c enciphers to itself",
+                            _config.alphabet().toChar(plain[t]));
+            }
+            _first[plain[t] + 1] += 1;
+            _first[cipher[t] + 1] += 1;
+        }
+        _test = 0;
+        for (int a = 0; a < size; a++) {
+            if (_first[a + 1] > _first[_test + 1]) {
+                _test = a;
+            }
+            _first[a + 1] += _first[a];
+        }
+        _other = new int[2 * plain.length];
+        _press = new int[2 * plain.length];
+        int[] fill = Arrays.copyOf(_first, size);
+        for (int t = 0; t < plain.length; t++) {
+            _other[fill[plain[t]]] = cipher[t];
+            _press[fill[plain[t]]++] = t;
+            _other[fill[cipher[t]]] = plain[t];
+            _press[fill[cipher[t]]++] = t;
+        }
+    }
+
+    /** Try only the rotor orders in ORDERS, each giving the names of the
+     *  rotors from the reflector rightwards. */
+    void setOrders(List<String[]> orders) {
+        _orders = new ArrayList<>(orders);
+    }
+
+    /** Return the letter whose plug the bombe hypothesizes, as an
+     *  index. */
+    int testLetter() {
+        return _test;
+    }
+
+    /** Return every stop, as a key giving the rotor settings at the
+     *  start of the ciphertext and the plugs implied at that stop.  Each
+     *  stop's score is the number of letters whose plugs it determines. */
+    List<Candidate> run() {
+        return _pool.invoke(new OrderTask(this, 0, _orders.size()));
+    }
+
+    /** Add to STOPS every stop for rotor order ORDER. */
+    private void runOrder(String[] order, List<Candidate> stops) {
+        int size = _config.alphabet().size();
+        int slots = _config.numRotors();
+        Machine machine = _template.copy();
+        machine.insertRotors(order);
+        Wiring wiring = new Wiring(size, _length);
+        int[] posns = new int[slots];
+        while (true) {
+            for (int i = 1; i < slots; i++) {
+                machine.setPosition(i, posns[i]);
+            }
+            machine.seek(_offset);
+            machine.pressTables(_length, wiring._presses);
+            test(wiring, order, posns, stops);
+            int i;
+            for (i = slots - 1; i > 0 && posns[i] == size - 1; i--) {
+                posns[i] = 0;
+            }
+            if (i == 0) {
+                return;
+            }
+            posns[i] += 1;
+        }
+    }
+
+    /** Test the setting POSNS of rotor order ORDER, whose rotor stacks are
+     *  tabulated in WIRING, adding any stops to STOPS. */
+    private void test(Wiring wiring, String[] order, int[] posns,
+                      List<Candidate> stops) {
+        int size = _config.alphabet().size();
+        if (energize(wiring, 0, false) == size) {
+            return;
+        }
+        if (wiring.consistent() && pluggable(wiring)) {
+            stops.add(stop(wiring, order, posns));
+        }
+        long[] unlit = wiring.unlitRow(_test);
+        for (int x = 0; x < size; x++) {
+            if ((unlit[x >>> 6] & (1L << x)) != 0
+                && energize(wiring, x, true) >= 0 && pluggable(wiring)) {
+                stops.add(stop(wiring, order, posns));
+            }
+        }
+    }
+
+    /** Return true iff every plug lit in WIRING joins a letter to itself
+     *  or joins two letters that a settings line can plug. */
+    private boolean pluggable(Wiring wiring) {
+        int size = _config.alphabet().size();
+        for (int k = 0; k < wiring._lit; k++) {
+            int a = wiring._queue[k] / size, x = wiring._queue[k] % size;
+            if (a != x && !(_pluggable[a] && _pluggable[x])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Light, in WIRING, the hypothesis that the test letter is plugged
+     *  to X and all it implies, first clearing earlier hypotheses.  Return
+     *  the number of plugs lit for the test letter.  If STRICT, instead
+     *  return -1 as soon as some letter gets two plugs. */
+    private int energize(Wiring wiring, int x, boolean strict) {
+        wiring.clear();
+        wiring.light(_test, x);
+        int size = _config.alphabet().size();
+        int[] queue = wiring._queue;
+        for (int head = 0; head < wiring._lit; head++) {
+            int a = queue[head] / size;
+            int y = queue[head] % size;
+            if (strict && wiring._counts[a] > 1) {
+                return -1;
+            }
+            wiring.light(y, a);
+            for (int e = _first[a]; e < _first[a + 1]; e++) {
+                wiring.light(_other[e],
+                             wiring._presses[_press[e] * size + y]);
+            }
+        }
+        if (strict && !wiring.consistent()) {
+            return -1;
+        }
+        return wiring._counts[_test];
+    }
+
+    /** Return the stop for rotor order ORDER at setting POSNS, with the
+     *  plugs lit in WIRING, which must be consistent. */
+    private Candidate stop(Wiring wiring, String[] order, int[] posns) {
+        Alphabet alphabet = _config.alphabet();
+        int size = alphabet.size();
+        int[] plug = new int[size];
+        for (int a = 0; a < size; a++) {
+            plug[a] = a;
+        }
+        int determined = 0;
+        for (int k = 0; k < wiring._lit; k++) {
+            int a = wiring._queue[k] / size;
+            plug[a] = wiring._queue[k] % size;
+            determined += 1;
+        }
+        char[] setting = new char[posns.length - 1];
+        for (int i = 1; i < posns.length; i++) {
+            setting[i - 1] = alphabet.toChar(posns[i]);
+        }
+        return new Candidate(order, new String(setting), "",
+                             PlugboardSolver.cycles(plug, alphabet),
+                             determined);
+    }
+
+    /** The scratch state of the bombe for one rotor order: the rotor
+     *  stack at each key press of the crib and the hypotheses lit. */
+    private static class Wiring {
+
+        /** Wiring for an alphabet of SIZE letters and a crib of LENGTH
+         *  letters. */
+        Wiring(int size, int length) {
+            _size = size;
+            _words = (size + WORD - 1) / WORD;
+            _presses = new int[length * size];
+            _bits = new long[size * _words];
+            _counts = new int[size];
+            _queue = new int[size * size];
+            _row = new long[_words];
+        }
+
+        /** Turn off every hypothesis. */
+        void clear() {
+            for (int k = 0; k < _lit; k++) {
+                int a = _queue[k] / _size;
+                _counts[a] = 0;
+                Arrays.fill(_bits, a * _words, (a + 1) * _words, 0L);
+            }
+            _lit = 0;
+        }
+
+        /** Light the hypothesis that A is plugged to X, if it is not
+         *  lit already. */
+        void light(int a, int x) {
+            int word = a * _words + (x >>> 6);
+            long bit = 1L << x;
+            if ((_bits[word] & bit) == 0) {
+                _bits[word] |= bit;
+                _counts[a] += 1;
+                _queue[_lit++] = a * _size + x;
+            }
+        }
+
+        /** Return true iff no letter has more than one plug lit. */
+        boolean consistent() {
+            for (int k = 0; k < _lit; k++) {
+                if (_counts[_queue[k] / _size] > 1) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /** Return a bitset of the plugs not lit for letter A.  The result
+         *  is overwritten by the next call. */
+        long[] unlitRow(int a) {
+            for (int w = 0; w < _words; w++) {
+                _row[w] = ~_bits[a * _words + w];
+            }
+            return _row;
+        }
+
+        /** Bits in a word of a bitset. */
+        private static final int WORD = 64;
+
+        /** The number of letters. */
+        private final int _size;
+        /** The number of words in each letter's bitset. */
+        private final int _words;
+        /** The rotor stack at each key press of the crib, as from
+         *  Machine.pressTables. */
+        private final int[] _presses;
+        /** The lit hypotheses: bit x of letter a's bitset is set iff a
+         *  may be plugged to x. */
+        private final long[] _bits;
+        /** The number of plugs lit for each letter. */
+        private final int[] _counts;
+        /** The lit hypotheses a * size + x, in the order lit. */
+        private final int[] _queue;
+        /** The number of hypotheses lit. */
+        private int _lit;
+        /** Scratch bitset returned by unlitRow. */
+        private final long[] _row;
+    }
+
+    /** Runs the bombe on a range of rotor orders, yielding the stops. */
+    private static class OrderTask extends RecursiveTask<List<Candidate>> {
+
+        /** A task that runs BOMBE on its rotor orders LO <= k < HI. */
+        OrderTask(Bombe bombe, int lo, int hi) {
+            _bombe = bombe;
+            _lo = lo;
+            _hi = hi;
+        }
+
+        @Override
+        protected List<Candidate> compute() {
+            if (_hi - _lo > 1) {
+                int mid = (_lo + _hi) >>> 1;
+                OrderTask left = new OrderTask(_bombe, _lo, mid);
+                left.fork();
+                List<Candidate> right =
+                    new OrderTask(_bombe, mid, _hi).compute();
+                List<Candidate> stops = left.join();
+                stops.addAll(right);
+                return stops;
+            }
+            List<Candidate> stops = new ArrayList<>();
+            for (int k = _lo; k < _hi; k++) {
+                _bombe.runOrder(_bombe._orders.get(k), stops);
+            }
+            return stops;
+        }
+
+        /** The bombe I am part of. */
+        private final Bombe _bombe;
+        /** The range of rotor orders I run. */
+        private final int _lo, _hi;
+    }
+
+    /** Run the bombe, as specified by ARGS, which are
+     *  CONFIG CRIB OFFSET [INPUT].  CONFIG names a configuration file,
+     *  CRIB is the known plaintext, starting at (0-based) character
+     *  OFFSET of the ciphertext, and INPUT names a file holding the
+     *  ciphertext (by default, the standard input).  Prints each stop
+     *  as a settings line. */
+    public static void main(String... args) {
+        try {
+            if (args.length < 3 || args.length > 4) {
+                throw error("usage: CONFIG CRIB OFFSET [INPUT]");
+            }
+            Configuration config = Configuration.read(args[0]);
+            int offset;
+            try {
+                offset = Integer.parseInt(args[2]);
+            } catch (NumberFormatException excp) {
+                throw error("bad crib offset: %s", args[2]);
+            }
+            StringBuilder text = new StringBuilder();
+            try (LineReader input = args.length > 3
+                 ? LineReader.open(args[3]) : LineReader.of(System.in)) {
+                while (input.hasNextLine()) {
+                    text.append(input.nextLine()).append('\n');
+                }
+            }
+            Bombe bombe = new Bombe(config, text.toString(), args[1],
+                                    offset);
+            for (Candidate stop : bombe.run()) {
+                System.out.println(stop);
+            }
+            return;
+        } catch (EnigmaException excp) {
+            System.err.printf("Error: %s%n", excp.getMessage());
+        }
+        System.exit(1);
+    }
+
+    /** The configuration of the machine attacked. */
+    private final Configuration _config;
+    /** An unset machine made from _config, copied for each order. */
+    private final Machine _template;
+    /** The pool I run on. */
+    private final ForkJoinPool _pool;
+    /** The position of the crib in the ciphertext. */
+    private final int _offset;
+    /** The length of the crib. */
+    private final int _length;
+    /** The rotor orders to try. */
+    private List<String[]> _orders;
+    /** True for each letter that a settings line can plug. */
+    private final boolean[] _pluggable;
+    /** The test letter. */
+    private int _test;
+    /** The menu, as adjacency lists:  the edges at letter a are numbered
+     *  _first[a] <= e < _first[a + 1], and edge e joins a to _other[e] at
+     *  crib position _press[e]. */
+    private int[] _first, _other, _press;
+}
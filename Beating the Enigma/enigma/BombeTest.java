@@ -0,0 +1,77 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static enigma.TestUtils.*;
+import static enigma.CoincidenceSearchTest.*;
+
+/** The suite of all JUnit tests for the Bombe class.
+ *  @author
+ */
+public class BombeTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(30);
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void checkStop() {
+        Configuration config = threeRotors();
+        String key = "* B II I III KPD (AR) (BT) (CS) (DE) (FO) (HN)";
+        String cipher = encrypt(config, key, PLAIN);
+        String crib = "HISSHOULDERHIAWATHATOOK";
+        Bombe bombe = new Bombe(config, cipher, crib, 4);
+        bombe.setOrders(Arrays.asList(new String[][] {
+            { "B", "II", "I", "III" }, { "B", "III", "I", "II" } }));
+        List<Candidate> stops = bombe.run();
+        boolean found = false;
+        for (Candidate stop : stops) {
+            if (stop.toString().startsWith("* B II I III KPD ")) {
+                found = true;
+                String plugs = stop.plugboard();
+                for (String pair : plugs.split(" ")) {
+                    assertTrue(pair, key.contains(pair));
+                }
+            }
+        }
+        assertTrue(found);
+        assertTrue(stops.size() < 100);
+    }
+
+    @Test
+    public void checkStopsPluggable() {
+        Configuration config = dottedRotors();
+        String key = "* R I II AA (AR) (BT) (CS)";
+        String cipher = encrypt(config, key, PLAIN);
+        Bombe bombe = new Bombe(config, cipher, "FROMHISSHOULDER", 0);
+        boolean found = false;
+        for (Candidate stop : bombe.run()) {
+            assertFalse(stop.toString(), stop.plugboard().contains("."));
+            assertEquals(stop.plugboard(),
+                         Candidate.parse(stop.toString(), 3).plugboard());
+            found |= stop.toString().startsWith("* R I II AA ");
+        }
+        assertTrue(found);
+    }
+
+    @Test
+    public void checkMenu() {
+        Configuration config = threeRotors();
+        Bombe bombe = new Bombe(config, "QAZ", "AXA", 0);
+        assertEquals(UPPER.toInt('A'), bombe.testLetter());
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void checkSelfEncipherment() {
+        new Bombe(threeRotors(), "ABC", "XBY", 0);
+    }
+
+}
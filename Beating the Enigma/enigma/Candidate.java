@@ -0,0 +1,104 @@
+package enigma;
+
+/** A possible key for a message, as found by one of the searches, with
+ *  the score it earned there.  Higher scores are better.
+ *  @author
+ */
+final class Candidate implements Comparable<Candidate> {
+
+    /** A key using the rotors named ROTORS (reflector first) with
+     *  settings SETTING, ring settings RING (empty for the default) and
+     *  plugboard PLUGBOARD (in cycle notation, empty for none), which
+     *  earned SCORE. */
+    Candidate(String[] rotors, String setting, String ring,
+              String plugboard, double score) {
+        _rotors = rotors.clone();
+        _setting = setting;
+        _ring = ring;
+        _plugboard = plugboard;
+        _score = score;
+    }
+
+    /** Return the key on SETTINGS, a settings line for a machine with
+     *  NUMROTORS rotor slots, with a score of 0. */
+    static Candidate parse(String settings, int numRotors) {
+        Main.Settings fields = Main.parseSettings(settings, numRotors);
+        return new Candidate(fields.rotors(), fields.setting(),
+                             fields.ring(), fields.plugboard(), 0.0);
+    }
+
+    /** Return the names of my rotors, reflector first. */
+    String[] rotors() {
+        return _rotors.clone();
+    }
+
+    /** Return my rotor settings. */
+    String setting() {
+        return _setting;
+    }
+
+    /** Return my ring settings, or "" for the default. */
+    String ring() {
+        return _ring;
+    }
+
+    /** Return my plugboard in cycle notation, or "" for none. */
+    String plugboard() {
+        return _plugboard;
+    }
+
+    /** Return my score. */
+    double score() {
+        return _score;
+    }
+
+    /** Return a copy of me with plugboard PLUGBOARD and score SCORE. */
+    Candidate withPlugboard(String plugboard, double score) {
+        return new Candidate(_rotors, _setting, _ring, plugboard, score);
+    }
+
+    /** Return a new machine made from CONFIG and set up with my key. */
+    Machine machine(Configuration config) {
+        Machine machine = config.newMachine();
+        machine.insertRotors(_rotors);
+        machine.setRotors(_setting);
+        if (!_ring.isEmpty()) {
+            machine.setRing(_ring);
+        }
+        machine.setPlugboard(new Permutation(_plugboard, config.alphabet()));
+        return machine;
+    }
+
+    @Override
+    public int compareTo(Candidate other) {
+        return Double.compare(_score, other._score);
+    }
+
+    /** Return my key as a settings line, as accepted by Main. */
+    @Override
+    public String toString() {
+        StringBuilder line = new StringBuilder("*");
+        for (String rotor : _rotors) {
+            line.append(' ').append(rotor);
+        }
+        line.append(' ').append(_setting);
+        if (!_ring.isEmpty()) {
+            line.append(' ').append(_ring);
+        }
+        if (!_plugboard.isEmpty()) {
+            line.append(' ').append(_plugboard);
+        }
+        return line.toString();
+    }
+
+    /** Names of my rotors, reflector first. */
+    private final String[] _rotors;
+    /** My rotor settings. */
+    private final String _setting;
+    /** My ring settings. */
+    private final String _ring;
+    /** My plugboard. */
+    private final String _plugboard;
+    /** My score. */
+    private final double _score;
+}
@@ -0,0 +1,376 @@
+package enigma;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import static enigma.EnigmaException.*;
+
+/** A ciphertext-only search for the rotor order and settings of a message,
+ *  assuming no plugboard.  Every rotor order the configuration allows is
+ *  tried at every rotor setting, and each trial decryption is scored by
+ *  its index of coincidence, which is markedly higher for text in a
+ *  natural language than for random letters.  Optionally, the ring of
+ *  the rightmost rotor is then searched for the best candidates.
+ *
+ *  The work is cut into units of one rotor order and one setting of the
+ *  leftmost rotor, which are spread over the threads of a ForkJoinPool.
+ *  Trial decryptions allocate nothing: each unit reuses one machine and
+ *  one array of letter counts.
+ *  @author
+ */
+class CoincidenceSearch {
+
+    /** A search on POOL for the key of CIPHERTEXT, a message for a machine
+     *  made from CONFIG.  Whitespace in CIPHERTEXT is ignored. */
+    CoincidenceSearch(Configuration config, String ciphertext,
+                      ForkJoinPool pool) {
+        _config = config;
+        _pool = pool;
+        _template = config.newMachine();
+        Alphabet alphabet = config.alphabet();
+        int[] cipher = new int[ciphertext.length()];
+        int len = 0;
+        for (int i = 0; i < ciphertext.length(); i++) {
+            char ch = ciphertext.charAt(i);
+            if (Character.isWhitespace(ch)) {
+                continue;
+            }
+            cipher[len] = alphabet.toInt(ch);
+            if (cipher[len] < 0) {
+                throw error("character %c not in alphabet", ch);
+            }
+            len += 1;
+        }
+        _cipher = Arrays.copyOf(cipher, len);
+        _orders = orders(config);
+    }
+
+    /** A search on the common pool for the key of CIPHERTEXT, a message
+     *  for a machine made from CONFIG. */
+    CoincidenceSearch(Configuration config, String ciphertext) {
+        this(config, ciphertext, ForkJoinPool.commonPool());
+    }
+
+    /** Search the ring of the rightmost rotor iff ON. */
+    void setRingSearch(boolean on) {
+        _ringSearch = on;
+    }
+
+    /** Return the rotor orders I try, each giving the names of the rotors
+     *  from the reflector rightwards. */
+    List<String[]> orders() {
+        return Collections.unmodifiableList(_orders);
+    }
+
+    /** Return the number of work units my search is cut into. */
+    int numUnits() {
+        return _orders.size() * _config.alphabet().size();
+    }
+
+    /** Return the (at most) K best keys found, best first. */
+    List<Candidate> search(int k) {
+        return search(k, 0, numUnits());
+    }
+
+    /** Return the (at most) K best keys found in work units
+     *  LO <= u < HI, best first.  Searching the units of a partition of
+     *  [0 .. numUnits()) separately and keeping the K best of all the
+     *  results gives the same keys as search(K), except that with ring
+     *  search on, the best of each range is refined rather than only
+     *  the best overall. */
+    List<Candidate> search(int k, int lo, int hi) {
+        if (k <= 0) {
+            throw error("number of candidates must be positive");
+        }
+        if (lo < 0 || hi > numUnits() || lo >= hi) {
+            throw error("bad range of work units: %d-%d", lo, hi);
+        }
+        PriorityQueue<Candidate> best =
+            _pool.invoke(new SearchTask(this, k, lo, hi));
+        if (_ringSearch) {
+            PriorityQueue<Candidate> ringed = new PriorityQueue<>();
+            for (Candidate found : best) {
+                offer(ringed, k, searchRing(found));
+            }
+            best = ringed;
+        }
+        List<Candidate> result = new ArrayList<>(best);
+        Collections.sort(result, Collections.reverseOrder());
+        return result;
+    }
+
+    /** Return the index of coincidence of a text with TOTAL characters
+     *  and COUNTS[c] occurrences of character c: the chance that two
+     *  characters chosen at random from different positions are equal. */
+    static double coincidence(int[] counts, int total) {
+        if (total < 2) {
+            return 0.0;
+        }
+        return (double) pairs(counts) / ((long) total * (total - 1));
+    }
+
+    /** Return the index of coincidence of my ciphertext as decrypted by a
+     *  trial that yielded PAIRS pairs. */
+    private double score(long pairs) {
+        long total = _cipher.length;
+        return total < 2 ? 0.0 : (double) pairs / (total * (total - 1));
+    }
+
+    /** Return the number of ordered pairs of positions holding the same
+     *  character in a text with COUNTS[c] occurrences of character c. */
+    private static long pairs(int[] counts) {
+        long sum = 0;
+        for (int n : counts) {
+            sum += (long) n * (n - 1);
+        }
+        return sum;
+    }
+
+    /** Return the number of ordered pairs of equal characters in my
+     *  ciphertext as decrypted by MACHINE, using COUNTS (of length alphabet
+     *  size) as scratch.  Advances MACHINE. */
+    private long trial(Machine machine, int[] counts) {
+        Arrays.fill(counts, 0);
+        for (int c : _cipher) {
+            counts[machine.convert(c)] += 1;
+        }
+        return pairs(counts);
+    }
+
+    /** Return a candidate for rotor order ORDER at settings POSNS (indexed
+     *  by slot) and rings RINGS, which earned SCORE. */
+    private Candidate candidate(String[] order, int[] posns, int[] rings,
+                                double score) {
+        Alphabet alphabet = _config.alphabet();
+        char[] setting = new char[posns.length - 1];
+        char[] ring = new char[rings.length - 1];
+        boolean ringed = false;
+        for (int i = 1; i < posns.length; i++) {
+            setting[i - 1] = alphabet.toChar(posns[i]);
+            ring[i - 1] = alphabet.toChar(rings[i]);
+            ringed |= rings[i] != 0;
+        }
+        return new Candidate(order, new String(setting),
+                             ringed ? new String(ring) : "", "", score);
+    }
+
+    /** Try rotor order _orders[U / size] with the leftmost rotor at setting
+     *  U % size, where size is the alphabet size, at every setting of the
+     *  other rotors, offering the results to BEST, which holds at most K
+     *  candidates. */
+    private void searchUnit(int u, int k, PriorityQueue<Candidate> best) {
+        int size = _config.alphabet().size();
+        int slots = _config.numRotors();
+        String[] order = _orders.get(u / size);
+        Machine machine = _template.copy();
+        machine.insertRotors(order);
+        int[] posns = new int[slots];
+        int[] counts = new int[size];
+        posns[1] = u % size;
+        while (true) {
+            for (int i = 1; i < slots; i++) {
+                machine.setPosition(i, posns[i]);
+            }
+            double score = score(trial(machine, counts));
+            if (best.size() < k || score > best.peek().score()) {
+                offer(best, k, candidate(order, posns, new int[slots],
+                                         score));
+            }
+            int i;
+            for (i = slots - 1; i > 1 && posns[i] == size - 1; i--) {
+                posns[i] = 0;
+            }
+            if (i == 1) {
+                return;
+            }
+            posns[i] += 1;
+        }
+    }
+
+    /** Return the best variant of FOUND, which has the default rings, got
+     *  by setting the ring of the rightmost rotor.  Its setting is moved
+     *  along with its ring so that its wiring stays where FOUND put it; only
+     *  the key presses at which it carries change. */
+    private Candidate searchRing(Candidate found) {
+        Alphabet alphabet = _config.alphabet();
+        int size = alphabet.size();
+        int slots = _config.numRotors();
+        String[] order = found.rotors();
+        Machine machine = _template.copy();
+        machine.insertRotors(order);
+        int[] posns = new int[slots];
+        int[] rings = new int[slots];
+        int[] counts = new int[size];
+        String setting = found.setting();
+        for (int i = 1; i < slots; i++) {
+            posns[i] = alphabet.toInt(setting.charAt(i - 1));
+        }
+        int last = slots - 1;
+        int start = posns[last];
+        Candidate best = found;
+        for (int r = 1; r < size; r++) {
+            rings[last] = r;
+            posns[last] = (start + r) % size;
+            machine.setRing(last, r);
+            for (int i = 1; i < slots; i++) {
+                machine.setPosition(i, posns[i]);
+            }
+            Candidate next = candidate(order, posns, rings,
+                                       score(trial(machine, counts)));
+            if (next.score() > best.score()) {
+                best = next;
+            }
+        }
+        return best;
+    }
+
+    /** Add CANDIDATE to BEST, then drop its worst member if it has more
+     *  than K. */
+    private static void offer(PriorityQueue<Candidate> best, int k,
+                              Candidate candidate) {
+        best.add(candidate);
+        if (best.size() > k) {
+            best.poll();
+        }
+    }
+
+    /** Return every rotor order CONFIG allows: a reflector, then
+     *  non-moving rotors, then as many moving rotors as there are pawls,
+     *  with no rotor used twice. */
+    static List<String[]> orders(Configuration config) {
+        int slots = config.numRotors();
+        int fixed = slots - config.numPawls();
+        List<String[]> result = new ArrayList<>();
+        addOrders(config.rotors(), fixed, new String[slots], 0, result);
+        return result;
+    }
+
+    /** Add to RESULT every completion of ORDER, whose first SLOT entries
+     *  are filled, from ROTORS, where the first FIXED slots hold
+     *  non-moving rotors. */
+    private static void addOrders(List<Rotor> rotors, int fixed,
+                                  String[] order, int slot,
+                                  List<String[]> result) {
+        if (slot == order.length) {
+            result.add(order.clone());
+            return;
+        }
+        for (Rotor rotor : rotors) {
+            boolean fits;
+            if (slot == 0) {
+                fits = rotor.reflecting();
+            } else if (slot < fixed) {
+                fits = !rotor.reflecting() && !rotor.rotates();
+            } else {
+                fits = rotor.rotates();
+            }
+            if (fits && !Arrays.asList(order).subList(0, slot)
+                .contains(rotor.name())) {
+                order[slot] = rotor.name();
+                addOrders(rotors, fixed, order, slot + 1, result);
+            }
+        }
+    }
+
+    /** Searches a range of work units, yielding the best candidates. */
+    private static class SearchTask
+        extends RecursiveTask<PriorityQueue<Candidate>> {
+
+        /** A task that searches units LO <= u < HI of SEARCH, keeping
+         *  the K best candidates. */
+        SearchTask(CoincidenceSearch search, int k, int lo, int hi) {
+            _search = search;
+            _k = k;
+            _lo = lo;
+            _hi = hi;
+        }
+
+        @Override
+        protected PriorityQueue<Candidate> compute() {
+            if (_hi - _lo > 1) {
+                int mid = (_lo + _hi) >>> 1;
+                SearchTask left = new SearchTask(_search, _k, _lo, mid);
+                left.fork();
+                PriorityQueue<Candidate> best =
+                    new SearchTask(_search, _k, mid, _hi).compute();
+                for (Candidate candidate : left.join()) {
+                    offer(best, _k, candidate);
+                }
+                return best;
+            }
+            PriorityQueue<Candidate> best = new PriorityQueue<>();
+            for (int u = _lo; u < _hi; u++) {
+                _search.searchUnit(u, _k, best);
+            }
+            return best;
+        }
+
+        /** The search I am part of. */
+        private final CoincidenceSearch _search;
+        /** The number of candidates to keep. */
+        private final int _k;
+        /** The range of units I search. */
+        private final int _lo, _hi;
+    }
+
+    /** Search for the key of a message, as specified by ARGS, which are
+     *  [-r] CONFIG [INPUT [K]].  CONFIG names a configuration file, and
+     *  INPUT a file holding the ciphertext (by default, the standard
+     *  input).  Prints the K (by default 1) best keys as settings lines,
+     *  best first.  With -r, also searches the ring of the rightmost
+     *  rotor. */
+    public static void main(String... args) {
+        try {
+            int first = args.length > 0 && args[0].equals("-r") ? 1 : 0;
+            if (args.length - first < 1 || args.length - first > 3) {
+                throw error("usage: [-r] CONFIG [INPUT [K]]");
+            }
+            Configuration config = Configuration.read(args[first]);
+            StringBuilder text = new StringBuilder();
+            try (LineReader input = args.length - first > 1
+                 ? LineReader.open(args[first + 1])
+                 : LineReader.of(System.in)) {
+                while (input.hasNextLine()) {
+                    text.append(input.nextLine()).append('\n');
+                }
+            }
+            int k = 1;
+            if (args.length - first > 2) {
+                try {
+                    k = Integer.parseInt(args[first + 2]);
+                } catch (NumberFormatException excp) {
+                    throw error("bad number of candidates: %s",
+                                args[first + 2]);
+                }
+            }
+            CoincidenceSearch search =
+                new CoincidenceSearch(config, text.toString());
+            search.setRingSearch(first == 1);
+            for (Candidate candidate : search.search(k)) {
+                System.out.println(candidate);
+            }
+            return;
+        } catch (EnigmaException excp) {
+            System.err.printf("Error: %s%n", excp.getMessage());
+        }
+        System.exit(1);
+    }
+
+    /** The configuration of the machine searched. */
+    private final Configuration _config;
+    /** An unset machine made from _config, copied for each unit. */
+    private final Machine _template;
+    /** The ciphertext, as alphabet indices. */
+    private final int[] _cipher;
+    /** The rotor orders to try. */
+    private final List<String[]> _orders;
+    /** The pool I run on. */
+    private final ForkJoinPool _pool;
+    /** True iff the ring of the rightmost rotor is searched. */
+    private boolean _ringSearch;
+}
@@ -0,0 +1,125 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static enigma.TestUtils.*;
+
+/** The suite of all JUnit tests for the CoincidenceSearch class.
+ *  @author
+ */
+public class CoincidenceSearchTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(30);
+
+    /* ***** TESTING UTILITIES ***** */
+
+    /** Return a moving naval rotor named NAME with NOTCHES. */
+    private static Rotor moving(String name, String notches) {
+        return new MovingRotor(name, new Permutation(NAVALA.get(name), UPPER),
+                               notches);
+    }
+
+    /** Return a four-slot configuration with reflector B and rotors I, II
+     *  and III. */
+    static Configuration threeRotors() {
+        Collection<Rotor> all = new ArrayList<>();
+        all.add(new Reflector("B", new Permutation(NAVALA.get("B"), UPPER)));
+        all.add(moving("I", "Q"));
+        all.add(moving("II", "E"));
+        all.add(moving("III", "V"));
+        return new Configuration(UPPER, 4, 3, all);
+    }
+
+    /** Return a three-slot configuration over the letters, '.' and '_',
+     *  with reflector R and rotors I and II. */
+    static Configuration dottedRotors() {
+        Alphabet alphabet = new Alphabet("ABCDEFGHIJKLMNOPQRSTUVWXYZ._");
+        Collection<Rotor> all = new ArrayList<>();
+        all.add(new Reflector("R", new Permutation(
+            "(AO) (BP) (CQ) (DR) (ES) (FT) (GU) (HV) (IW) (JX) (KY) (LZ) "
+            + "(M.) (N_)", alphabet)));
+        all.add(new MovingRotor("I", new Permutation("(ABC.)", alphabet),
+                                "A"));
+        all.add(new MovingRotor("II", new Permutation("(DE_)", alphabet),
+                                "A"));
+        return new Configuration(alphabet, 3, 2, all);
+    }
+
+    /** Return PLAIN encrypted under the key on SETTINGS, a settings line,
+     *  by a machine made from CONFIG. */
+    static String encrypt(Configuration config, String settings,
+                          String plain) {
+        Candidate key = Candidate.parse(settings, config.numRotors());
+        return key.machine(config).convert(plain);
+    }
+
+    /** Several hundred letters of English. */
+    static final String PLAIN =
+        "FROM HIS SHOULDER HIAWATHA TOOK THE CAMERA OF ROSEWOOD "
+        + "MADE OF SLIDING FOLDING ROSEWOOD NEATLY PUT IT ALL TOGETHER "
+        + "IN ITS CASE IT LAY COMPACTLY FOLDED INTO NEARLY NOTHING "
+        + "BUT HE OPENED OUT THE HINGES PUSHED AND PULLED THE JOINTS "
+        + "AND HINGES TILL IT LOOKED ALL SQUARES AND OBLONGS LIKE A "
+        + "COMPLICATED FIGURE IN THE SECOND BOOK OF EUCLID THIS HE "
+        + "PERCHED UPON A TRIPOD CROUCHED BENEATH ITS DUSKY COVER "
+        + "STRETCHED HIS HAND ENFORCING SILENCE SAID BE MOTIONLESS I "
+        + "BEG YOU MYSTIC AWFUL WAS THE PROCESS";
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void checkCoincidence() {
+        assertEquals(0.0, CoincidenceSearch.coincidence(new int[] {1}, 1),
+                     0.0);
+        assertEquals(1.0, CoincidenceSearch.coincidence(new int[] {4, 0}, 4),
+                     1e-12);
+        assertEquals(4.0 / 12.0,
+                     CoincidenceSearch.coincidence(new int[] {2, 2}, 4),
+                     1e-12);
+    }
+
+    @Test
+    public void checkOrders() {
+        CoincidenceSearch search = new CoincidenceSearch(threeRotors(), "");
+        List<String[]> orders = search.orders();
+        assertEquals(6, orders.size());
+        for (String[] order : orders) {
+            assertEquals("B", order[0]);
+        }
+    }
+
+    @Test
+    public void checkSearch() {
+        Configuration config = threeRotors();
+        String key = "* B II I III KPD";
+        CoincidenceSearch search =
+            new CoincidenceSearch(config, encrypt(config, key, PLAIN));
+        List<Candidate> best = search.search(3);
+        assertEquals(3, best.size());
+        assertEquals(key, best.get(0).toString());
+        assertTrue(best.get(0).score() > best.get(1).score());
+        assertEquals(PLAIN.replace(" ", ""),
+                     best.get(0).machine(config)
+                     .convert(encrypt(config, key, PLAIN)));
+    }
+
+    @Test
+    public void checkRingSearch() {
+        Configuration config = threeRotors();
+        String key = "* B II I III KPD AAF";
+        CoincidenceSearch search =
+            new CoincidenceSearch(config, encrypt(config, key, PLAIN));
+        search.setRingSearch(true);
+        assertEquals(key, search.search(3).get(0).toString());
+    }
+
+}
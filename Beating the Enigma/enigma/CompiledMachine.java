@@ -0,0 +1,74 @@
+package enigma;
+
+/** An immutable, fully tabulated form of a configured Machine.  Each
+ *  reachable combination of settings of the machine's rotating rotors is
+ *  numbered as a state; for every state the machine's complete
+ *  permutation and the state that follows one key press are stored in
+ *  flat arrays.  As on the machine, a key press first steps and then
+ *  encrypts, so to convert C from state S, use
+ *  encrypt(S = step(S), C).
+ *  @author
+ */
+final class CompiledMachine {
+
+    /** A compiled machine over ALPHABET whose permutation in state S
+     *  maps index C to ENCRYPT[S * ALPHABET.size() + C], whose state after
+     *  S is NEXT[S], and whose state when compiled was INITIAL.  Takes
+     *  ownership of the arrays. */
+    CompiledMachine(Alphabet alphabet, char[] encrypt, int[] next,
+                    int initial) {
+        _alphabet = alphabet;
+        _size = alphabet.size();
+        _encrypt = encrypt;
+        _next = next;
+        _initial = initial;
+    }
+
+    /** Return my alphabet. */
+    Alphabet alphabet() {
+        return _alphabet;
+    }
+
+    /** Return the number of states I have. */
+    int numStates() {
+        return _next.length;
+    }
+
+    /** Return the state of the machine I was compiled from, at the time
+     *  it was compiled. */
+    int initialState() {
+        return _initial;
+    }
+
+    /** Return the state following STATE after one key press. */
+    int step(int state) {
+        return _next[state];
+    }
+
+    /** Return the encryption of index C in STATE. */
+    int encrypt(int state, int c) {
+        return _encrypt[state * _size + c];
+    }
+
+    /** Return the encryption of character C, which must be in my
+     *  alphabet, in STATE. */
+    char encrypt(int state, char c) {
+        int index = _alphabet.toInt(c);
+        if (index < 0) {
+            throw EnigmaException.error("character %c not in alphabet", c);
+        }
+        return _alphabet.toChar(_encrypt[state * _size + index]);
+    }
+
+    /** My alphabet. */
+    private final Alphabet _alphabet;
+    /** Size of my alphabet. */
+    private final int _size;
+    /** The permutation of each state, stored state by state. */
+    private final char[] _encrypt;
+    /** The successor of each state. */
+    private final int[] _next;
+    /** The state at which I was compiled. */
+    private final int _initial;
+
+}
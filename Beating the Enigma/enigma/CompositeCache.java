@@ -0,0 +1,79 @@
+package enigma;
+
+/** A bounded cache of composite permutation tables, keyed by a long that
+ *  encodes a machine's rotor state.  Each key hashes to one slot; a new
+ *  entry evicts whatever occupied its slot, and reuses its table.
+ *  @author
+ */
+class CompositeCache {
+
+    /** A cache holding about CAPACITY tables (rounded up to a power of
+     *  two, but at most 2**24), each of SIZE entries. */
+    CompositeCache(int capacity, int size) {
+        int slots = 1;
+        while (slots < capacity && slots < MAX_SLOTS) {
+            slots <<= 1;
+        }
+        _bits = Integer.numberOfTrailingZeros(slots);
+        _keys = new long[slots];
+        _tables = new int[slots][];
+        _size = size;
+    }
+
+    /** Return the number of tables I can hold. */
+    int capacity() {
+        return _keys.length;
+    }
+
+    /** Return the table stored for KEY, or null if there is none. */
+    int[] get(long key) {
+        int slot = slot(key);
+        int[] table = _tables[slot];
+        if (table != null && _keys[slot] == key) {
+            return table;
+        }
+        return null;
+    }
+
+    /** Return a table for the caller to fill in as the entry for KEY,
+     *  evicting any other entry in its slot. */
+    int[] put(long key) {
+        int slot = slot(key);
+        if (_tables[slot] == null) {
+            _tables[slot] = new int[_size];
+        }
+        _keys[slot] = key;
+        return _tables[slot];
+    }
+
+    /** Remove all entries. */
+    void clear() {
+        for (int i = 0; i < _tables.length; i++) {
+            _tables[i] = null;
+        }
+    }
+
+    /** Return the slot for KEY. */
+    private int slot(long key) {
+        if (_bits == 0) {
+            return 0;
+        }
+        return (int) ((key * HASH_MULTIPLIER) >>> (Long.SIZE - _bits));
+    }
+
+    /** Largest number of slots. */
+    private static final int MAX_SLOTS = 1 << 24;
+
+    /** Multiplier for Fibonacci hashing of keys. */
+    private static final long HASH_MULTIPLIER = 0x9e3779b97f4a7c15L;
+
+    /** Log base 2 of the number of slots. */
+    private final int _bits;
+    /** The key stored in each slot. */
+    private final long[] _keys;
+    /** The table stored in each slot, or null if the slot is empty. */
+    private final int[][] _tables;
+    /** Length of each table. */
+    private final int _size;
+
+}
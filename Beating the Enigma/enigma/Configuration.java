@@ -0,0 +1,338 @@
+package enigma;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Scanner;
+
+import static enigma.EnigmaException.*;
+
+/** The contents of a machine configuration file: an alphabet, the number
+ *  of rotor slots and pawls, and the rotors available.  Since rotors keep
+ *  no state that machines change, any number of machines, on any number
+ *  of threads, may be made from one configuration.
+ *  @author
+ */
+final class Configuration {
+
+    /** A configuration with alphabet ALPHA, NUMROTORS rotor slots, PAWLS
+     *  pawls, and the rotors in ALLROTORS. */
+    Configuration(Alphabet alpha, int numRotors, int pawls,
+                  Collection<Rotor> allRotors) {
+        _alphabet = alpha;
+        _numRotors = numRotors;
+        _pawls = pawls;
+        _rotors = Collections.unmodifiableList(new ArrayList<>(allRotors));
+    }
+
+    /** Return the configuration described by the file named NAME. */
+    static Configuration read(String name) {
+        Scanner config;
+        try {
+            config = new Scanner(new File(name));
+        } catch (IOException excp) {
+            throw error("could not open %s", name);
+        }
+        try {
+            return read(config);
+        } finally {
+            config.close();
+        }
+    }
+
+    /** Return the configuration described by the file named NAME, as for
+     *  read(NAME), but from the compiled copy of it in the file NAME
+     *  followed by COMPILED_SUFFIX if that was made from the present
+     *  contents of NAME.  Otherwise, parse NAME and try to write the
+     *  compiled copy for next time.  The compiled copy holds the
+     *  alphabet, the rotors' permutations as tables, and their notches,
+     *  together with a hash of the text it was made from, and is read
+     *  through a memory map with no parsing. */
+    static Configuration load(String name) {
+        byte[] text;
+        try {
+            text = Files.readAllBytes(Paths.get(name));
+        } catch (IOException | InvalidPathException excp) {
+            throw error("could not open %s", name);
+        }
+        long hash = hash(text);
+        String compiled = name + COMPILED_SUFFIX;
+        Configuration result = readCompiled(compiled, hash);
+        if (result == null) {
+            result = read(new Scanner(new ByteArrayInputStream(text)));
+            result.writeCompiled(compiled, hash);
+        }
+        return result;
+    }
+
+    /** Return the configuration compiled into the file named NAME, or
+     *  null if there is none or it was not made from text whose hash is
+     *  HASH. */
+    private static Configuration readCompiled(String name, long hash) {
+        Path path = Paths.get(name);
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(path,
+                                                    StandardOpenOption.READ)) {
+            if (channel.size() > MAX_COMPILED) {
+                return null;
+            }
+            ByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                                         channel.size());
+            if (map.getInt() != MAGIC || map.getLong() != hash) {
+                return null;
+            }
+            char[] chars = new char[count(map, Character.BYTES)];
+            for (int c = 0; c < chars.length; c++) {
+                chars[c] = map.getChar();
+            }
+            Alphabet alphabet = new Alphabet(new String(chars));
+            int numRotors = map.getInt();
+            int pawls = map.getInt();
+            if (numRotors <= 1 || pawls < 0 || pawls >= numRotors) {
+                return null;
+            }
+            Collection<Rotor> allRotors = new ArrayList<>();
+            int minRotorBytes = Character.BYTES
+                + (2 + chars.length) * Integer.BYTES;
+            for (int k = count(map, minRotorBytes); k > 0; k--) {
+                char kind = map.getChar();
+                String rotorName = getString(map);
+                String notches = getString(map);
+                int[] forward = new int[chars.length];
+                map.asIntBuffer().get(forward);
+                map.position(map.position() + forward.length * Integer.BYTES);
+                allRotors.add(rotor(kind, rotorName,
+                                    new Permutation(forward, alphabet),
+                                    notches));
+            }
+            if (map.hasRemaining()) {
+                return null;
+            }
+            return new Configuration(alphabet, numRotors, pawls, allRotors);
+        } catch (IOException | BufferUnderflowException
+                 | EnigmaException excp) {
+            return null;
+        }
+    }
+
+    /** Write me, compiled, to the file named NAME, recording that I was
+     *  made from text whose hash is HASH.  The file is written under
+     *  another name and then renamed, so that a reader never sees it half
+     *  written.  Failure is not an error, since the compiled copy only
+     *  saves time. */
+    private void writeCompiled(String name, long hash) {
+        Path path = Paths.get(name).toAbsolutePath();
+        Path temp = null;
+        try {
+            temp = Files.createTempFile(path.getParent(), ".config", ".tmp");
+            try (DataOutputStream out = new DataOutputStream(
+                     new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeLong(hash);
+                int size = _alphabet.size();
+                out.writeInt(size);
+                for (int c = 0; c < size; c++) {
+                    out.writeChar(_alphabet.toChar(c));
+                }
+                out.writeInt(_numRotors);
+                out.writeInt(_pawls);
+                out.writeInt(_rotors.size());
+                for (Rotor rotor : _rotors) {
+                    StringBuilder notches = new StringBuilder();
+                    for (int c = 0; c < size; c++) {
+                        if (rotor.atNotch(c)) {
+                            notches.append(_alphabet.toChar(c));
+                        }
+                    }
+                    out.writeChar(rotor.rotates() ? MOVING
+                                  : rotor.reflecting() ? REFLECTOR : FIXED);
+                    putString(out, rotor.name());
+                    putString(out, notches.toString());
+                    for (int c = 0; c < size; c++) {
+                        out.writeInt(rotor.permutation().permute(c));
+                    }
+                }
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING,
+                       StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | SecurityException excp) {
+            try {
+                if (temp != null) {
+                    Files.deleteIfExists(temp);
+                }
+            } catch (IOException excp2) {
+                /* Ignore. */
+            }
+        }
+    }
+
+    /** Write S to OUT as its length in UTF-8 bytes, followed by them. */
+    private static void putString(DataOutputStream out, String s)
+        throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /** Return the count at the position of MAP, a number of items that
+     *  each take at least BYTESEACH bytes of what follows it.  Throws
+     *  BufferUnderflowException if the count is negative or too large
+     *  for the rest of MAP, so a damaged copy is never trusted with an
+     *  allocation. */
+    private static int count(ByteBuffer map, int bytesEach) {
+        int n = map.getInt();
+        if (n < 0 || (long) n * bytesEach > map.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        return n;
+    }
+
+    /** Return the string written by putString at the position of MAP. */
+    private static String getString(ByteBuffer map) {
+        int len = map.getInt();
+        if (len < 0 || len > map.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        byte[] bytes = new byte[len];
+        map.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /** Return the 64-bit FNV-1a hash of TEXT. */
+    private static long hash(byte[] text) {
+        long h = HASH_SEED;
+        for (byte b : text) {
+            h = (h ^ (b & BYTE_MASK)) * HASH_PRIME;
+        }
+        return h ^ text.length;
+    }
+
+    /** Return the configuration described by the rest of CONFIG. */
+    static Configuration read(Scanner config) {
+        try {
+            Alphabet alphabet = new Alphabet(config.next());
+            int numRotors = config.nextInt();
+            int pawls = config.nextInt();
+            Collection<Rotor> allRotors = new ArrayList<Rotor>();
+            while (config.hasNext()) {
+                allRotors.add(readRotor(config, alphabet));
+            }
+            return new Configuration(alphabet, numRotors, pawls, allRotors);
+        } catch (NoSuchElementException excp) {
+            throw error("configuration file truncated");
+        }
+    }
+
+    /** Return a rotor over ALPHABET, reading its description from
+     *  CONFIG. */
+    private static Rotor readRotor(Scanner config, Alphabet alphabet) {
+        try {
+            String name = config.next();
+            String mFr = config.next();
+            char mFr2 = mFr.charAt(0);
+            String notches = mFr.substring(1);
+            String cycles = "";
+            if (config.hasNext("(\\(\\w+\\)){2,}")) {
+                cycles += config.next();
+            }
+            while (config.hasNext("\\(\\w+\\.*\\w*\\)")) {
+                cycles += config.next();
+            }
+            return rotor(mFr2, name, new Permutation(cycles, alphabet),
+                         notches);
+        } catch (NoSuchElementException excp) {
+            throw error("bad rotor description");
+        }
+    }
+
+    /** Return a rotor named NAME with permutation PERM, which is a
+     *  moving rotor with NOTCHES if KIND is MOVING, a fixed rotor if KIND
+     *  is FIXED, and otherwise a reflector. */
+    private static Rotor rotor(char kind, String name, Permutation perm,
+                               String notches) {
+        if (kind == MOVING) {
+            return new MovingRotor(name, perm, notches);
+        } else if (kind == FIXED) {
+            return new FixedRotor(name, perm);
+        } else {
+            return new Reflector(name, perm);
+        }
+    }
+
+    /** Return a new machine with this configuration and no rotors
+     *  inserted. */
+    Machine newMachine() {
+        return new Machine(_alphabet, _numRotors, _pawls, _rotors);
+    }
+
+    /** Return my alphabet. */
+    Alphabet alphabet() {
+        return _alphabet;
+    }
+
+    /** Return the number of rotor slots. */
+    int numRotors() {
+        return _numRotors;
+    }
+
+    /** Return the number of pawls (and thus rotating rotors). */
+    int numPawls() {
+        return _pawls;
+    }
+
+    /** Return the available rotors, in the order they were described. */
+    List<Rotor> rotors() {
+        return _rotors;
+    }
+
+    /** Appended to the name of a configuration file to name its compiled
+     *  copy. */
+    static final String COMPILED_SUFFIX = ".compiled";
+
+    /** First word of a compiled configuration, identifying the format. */
+    private static final int MAGIC = 0x454e4346;
+    /** Largest compiled configuration read. */
+    private static final long MAX_COMPILED = Integer.MAX_VALUE;
+    /** Type letter of a moving rotor. */
+    private static final char MOVING = 'M';
+    /** Type letter of a fixed rotor. */
+    private static final char FIXED = 'N';
+    /** Type letter of a reflector. */
+    private static final char REFLECTOR = 'R';
+    /** FNV-1a offset basis. */
+    private static final long HASH_SEED = 0xcbf29ce484222325L;
+    /** FNV-1a prime. */
+    private static final long HASH_PRIME = 0x100000001b3L;
+    /** Mask selecting the unsigned value of a byte. */
+    private static final int BYTE_MASK = 0xff;
+
+    /** My alphabet. */
+    private final Alphabet _alphabet;
+    /** Number of rotor slots. */
+    private final int _numRotors;
+    /** Number of pawls. */
+    private final int _pawls;
+    /** The available rotors. */
+    private final List<Rotor> _rotors;
+}
@@ -0,0 +1,137 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static enigma.TestUtils.*;
+
+/** The suite of all JUnit tests for the Configuration class.
+ *  @author
+ */
+public class ConfigurationTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5);
+
+    /* ***** TESTING UTILITIES ***** */
+
+    /** A configuration file with rotors I, II, III, Beta and B. */
+    private static final String CONFIG =
+        UPPER_STRING + " 5 3\n"
+        + " I MQ " + NAVALA.get("I") + "\n"
+        + " II ME " + NAVALA.get("II") + "\n"
+        + " III MVZ " + NAVALA.get("III") + "\n"
+        + " Beta N " + NAVALA.get("Beta") + "\n"
+        + " B R " + NAVALA.get("B") + "\n";
+
+    /** Return a temporary file holding TEXT, with its compiled copy
+     *  removed when the tests end. */
+    private static File configFile(String text) throws IOException {
+        File file = File.createTempFile("enigma", ".conf");
+        file.deleteOnExit();
+        new File(file.getPath() + Configuration.COMPILED_SUFFIX)
+            .deleteOnExit();
+        Files.write(file.toPath(), text.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    /** Return the encryption of a message by a machine made from CONFIG
+     *  with the key "* B Beta III II I QRSZ". */
+    private static String encrypt(Configuration config) {
+        Machine machine = config.newMachine();
+        machine.insertRotors(new String[] { "B", "Beta", "III", "II", "I" });
+        machine.setRotors("QRSZ");
+        return machine.convert("THE QUICK BROWN FOX JUMPS OVER THE LAZY DOG "
+                               + "AGAIN AND AGAIN AND AGAIN");
+    }
+
+    /** Offset of the alphabet size in a compiled copy, after its magic
+     *  number and hash. */
+    private static final int ALPHABET_COUNT = Integer.BYTES + Long.BYTES;
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void checkCompiledCopy() throws IOException {
+        File file = configFile(CONFIG);
+        File compiled = new File(file.getPath()
+                                 + Configuration.COMPILED_SUFFIX);
+        String expected = encrypt(Configuration.read(file.getPath()));
+        assertFalse(compiled.exists());
+        assertEquals(expected, encrypt(Configuration.load(file.getPath())));
+        assertTrue(compiled.exists());
+        Configuration loaded = Configuration.load(file.getPath());
+        assertEquals(expected, encrypt(loaded));
+        assertEquals(5, loaded.numRotors());
+        assertEquals(3, loaded.numPawls());
+        assertEquals(5, loaded.rotors().size());
+        assertTrue(loaded.rotors().get(4).reflecting());
+        assertFalse(loaded.rotors().get(3).rotates());
+    }
+
+    @Test
+    public void checkStaleCopy() throws IOException {
+        File file = configFile(CONFIG);
+        Configuration.load(file.getPath());
+        String changed = CONFIG.replace("I MQ", "I MA");
+        Files.write(file.toPath(), changed.getBytes(StandardCharsets.UTF_8));
+        assertEquals(encrypt(Configuration.read(file.getPath())),
+                     encrypt(Configuration.load(file.getPath())));
+    }
+
+    @Test
+    public void checkCorruptCopy() throws IOException {
+        File file = configFile(CONFIG);
+        File compiled = new File(file.getPath()
+                                 + Configuration.COMPILED_SUFFIX);
+        Configuration.load(file.getPath());
+        byte[] bytes = Files.readAllBytes(compiled.toPath());
+        Files.write(compiled.toPath(),
+                    Arrays.copyOf(bytes, bytes.length / 2));
+        assertEquals(encrypt(Configuration.read(file.getPath())),
+                     encrypt(Configuration.load(file.getPath())));
+        assertEquals(bytes.length, compiled.length());
+    }
+
+    @Test
+    public void checkCorruptCounts() throws IOException {
+        File file = configFile(CONFIG);
+        File compiled = new File(file.getPath()
+                                 + Configuration.COMPILED_SUFFIX);
+        String expected = encrypt(Configuration.read(file.getPath()));
+        Configuration.load(file.getPath());
+        byte[] good = Files.readAllBytes(compiled.toPath());
+        int size = ByteBuffer.wrap(good).getInt(ALPHABET_COUNT);
+        int rotorCount = ALPHABET_COUNT + Integer.BYTES
+            + size * Character.BYTES + 2 * Integer.BYTES;
+        int[] offsets = { ALPHABET_COUNT, rotorCount };
+        int[] values = { -1, Integer.MAX_VALUE };
+        for (int offset : offsets) {
+            for (int value : values) {
+                byte[] bad = good.clone();
+                ByteBuffer.wrap(bad).putInt(offset, value);
+                Files.write(compiled.toPath(), bad);
+                assertEquals(expected,
+                             encrypt(Configuration.load(file.getPath())));
+                assertArrayEquals(good,
+                                  Files.readAllBytes(compiled.toPath()));
+            }
+        }
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void checkMissingFile() {
+        Configuration.load("no such file.conf");
+    }
+
+}
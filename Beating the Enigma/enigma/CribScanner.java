@@ -0,0 +1,228 @@
+package enigma;
+
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static enigma.EnigmaException.*;
+
+/** Finds where cribs may lie in a ciphertext.  Every reflector of the
+ *  configuration must be a derangement, so that no letter ever enciphers
+ *  to itself; a crib therefore cannot lie at any offset where one of its
+ *  letters falls on the same letter of the ciphertext.
+ *
+ *  The ciphertext is read in blocks.  For each block and each letter a,
+ *  a bitset marks the positions holding a.  The offsets excluded for a
+ *  crib p_0 p_1 ... are then the union, over i, of the bitset for p_i
+ *  shifted down by i, computed 64 offsets per word operation.  The last
+ *  few letters of each block are carried into the next, so cribs that
+ *  straddle blocks are found, and ciphertexts of any length are scanned
+ *  in constant space.
+ *  @author
+ */
+class CribScanner {
+
+    /** Receives admissible crib offsets. */
+    interface Hits {
+        /** Note that crib number CRIB may start at (0-based) letter
+         *  OFFSET of the ciphertext. */
+        void hit(int crib, long offset);
+    }
+
+    /** A scanner for CRIBS in ciphertexts for machines made from CONFIG,
+     *  reading BLOCKSIZE letters at a time.  Whitespace in the cribs is
+     *  ignored. */
+    CribScanner(Configuration config, List<String> cribs, int blockSize) {
+        for (Rotor rotor : config.rotors()) {
+            if (rotor.reflecting() && !rotor.permutation().derangement()) {
+                throw error("reflector %s maps a letter to itself",
+                            rotor.name());
+            }
+        }
+        if (cribs.isEmpty()) {
+            throw error("no cribs");
+        }
+        _alphabet = config.alphabet();
+        _cribs = new int[cribs.size()][];
+        for (int k = 0; k < _cribs.length; k++) {
+            _cribs[k] = Bombe.indices(_alphabet, cribs.get(k));
+            if (_cribs[k].length == 0) {
+                throw error("empty crib");
+            }
+            _maxLen = Math.max(_maxLen, _cribs[k].length);
+        }
+        int capacity = Math.max(blockSize, 2 * _maxLen);
+        _block = new int[capacity];
+        int words = (capacity >>> LOG_WORD) + 3;
+        _positions = new long[_alphabet.size()][words];
+        _excluded = new long[words];
+    }
+
+    /** A scanner for CRIBS in ciphertexts for machines made from CONFIG,
+     *  reading blocks of the default size. */
+    CribScanner(Configuration config, List<String> cribs) {
+        this(config, cribs, DEFAULT_BLOCK);
+    }
+
+    /** Report every admissible offset of each crib in the ciphertext read
+     *  from INPUT to HITS, in order of offset within each block.  Return
+     *  the number of letters read.  Whitespace is ignored. */
+    long scan(LineReader input, Hits hits) {
+        _start = 0;
+        _len = 0;
+        while (input.hasNextLine()) {
+            int len = input.readLine();
+            char[] line = input.buffer();
+            for (int i = 0; i < len; i++) {
+                add(line[i], hits);
+            }
+        }
+        scanBlock(true, hits);
+        return _start + _len;
+    }
+
+    /** Report every admissible offset of each crib in CIPHERTEXT to HITS,
+     *  as for scan(LineReader, Hits). */
+    long scan(CharSequence ciphertext, Hits hits) {
+        _start = 0;
+        _len = 0;
+        for (int i = 0; i < ciphertext.length(); i++) {
+            add(ciphertext.charAt(i), hits);
+        }
+        scanBlock(true, hits);
+        return _start + _len;
+    }
+
+    /** Append CH, unless it is whitespace, to the current block, scanning
+     *  the block for HITS if it is full. */
+    private void add(char ch, Hits hits) {
+        if (Character.isWhitespace(ch)) {
+            return;
+        }
+        int c = _alphabet.toInt(ch);
+        if (c < 0) {
+            throw error("character %c not in alphabet", ch);
+        }
+        _block[_len++] = c;
+        if (_len == _block.length) {
+            scanBlock(false, hits);
+        }
+    }
+
+    /** Report to HITS the admissible offsets in the current block, then
+     *  keep only the letters a crib starting at a later offset may need.
+     *  If LAST, the block ends the ciphertext. */
+    private void scanBlock(boolean last, Hits hits) {
+        int words = (_len >>> LOG_WORD) + 1;
+        for (long[] bits : _positions) {
+            Arrays.fill(bits, 0, words + 2, 0L);
+        }
+        for (int j = 0; j < _len; j++) {
+            _positions[_block[j]][j >>> LOG_WORD] |= 1L << j;
+        }
+        for (int k = 0; k < _cribs.length; k++) {
+            int[] crib = _cribs[k];
+            int limit = _len - (last ? crib.length : _maxLen) + 1;
+            if (limit <= 0) {
+                continue;
+            }
+            int limitWords = ((limit - 1) >>> LOG_WORD) + 1;
+            Arrays.fill(_excluded, 0, limitWords, 0L);
+            for (int i = 0; i < crib.length; i++) {
+                orShifted(_positions[crib[i]], i, limitWords);
+            }
+            for (int w = 0; w < limitWords; w++) {
+                long open = ~_excluded[w];
+                while (open != 0) {
+                    int o = (w << LOG_WORD) + Long.numberOfTrailingZeros(open);
+                    if (o >= limit) {
+                        break;
+                    }
+                    hits.hit(k, _start + o);
+                    open &= open - 1;
+                }
+            }
+        }
+        int keep = last ? 0 : _maxLen - 1;
+        System.arraycopy(_block, _len - keep, _block, 0, keep);
+        _start += _len - keep;
+        _len = keep;
+    }
+
+    /** Or into the first WORDS words of _excluded the bitset BITS shifted
+     *  down by SHIFT bits. */
+    private void orShifted(long[] bits, int shift, int words) {
+        int q = shift >>> LOG_WORD;
+        int r = shift & (WORD - 1);
+        for (int w = 0; w < words; w++) {
+            long v = bits[w + q] >>> r;
+            if (r != 0) {
+                v |= bits[w + q + 1] << (WORD - r);
+            }
+            _excluded[w] |= v;
+        }
+    }
+
+    /** Scan for cribs, as specified by ARGS, which are
+     *  CONFIG INPUT CRIB....  CONFIG names a configuration file, and
+     *  INPUT a file holding the ciphertext, or "-" for the standard
+     *  input.  Prints a line "CRIB OFFSET" for each admissible (0-based)
+     *  offset of each CRIB, in the form Bombe's command line takes. */
+    public static void main(String... args) {
+        try {
+            if (args.length < 3) {
+                throw error("usage: CONFIG INPUT CRIB...");
+            }
+            Configuration config = Configuration.read(args[0]);
+            List<String> cribs =
+                new ArrayList<>(Arrays.asList(args).subList(2, args.length));
+            CribScanner scanner = new CribScanner(config, cribs);
+            PrintWriter out = new PrintWriter(new BufferedWriter(
+                new OutputStreamWriter(System.out)));
+            try (LineReader input = args[1].equals("-")
+                 ? LineReader.of(System.in) : LineReader.open(args[1])) {
+                scanner.scan(input, (crib, offset) -> {
+                    out.print(cribs.get(crib));
+                    out.print(' ');
+                    out.println(offset);
+                });
+            } finally {
+                out.flush();
+            }
+            return;
+        } catch (EnigmaException excp) {
+            System.err.printf("Error: %s%n", excp.getMessage());
+        }
+        System.exit(1);
+    }
+
+    /** Default number of letters in a block. */
+    static final int DEFAULT_BLOCK = 1 << 16;
+
+    /** Log base 2 of the number of bits in a word of a bitset. */
+    private static final int LOG_WORD = 6;
+    /** Number of bits in a word of a bitset. */
+    private static final int WORD = 1 << LOG_WORD;
+
+    /** The alphabet of the ciphertext. */
+    private final Alphabet _alphabet;
+    /** The cribs, as alphabet indices. */
+    private final int[][] _cribs;
+    /** The length of the longest crib. */
+    private int _maxLen;
+    /** The current block of ciphertext, as alphabet indices. */
+    private final int[] _block;
+    /** The number of letters in _block. */
+    private int _len;
+    /** The offset in the ciphertext of the start of _block. */
+    private long _start;
+    /** _positions[a] is a bitset of the positions of letter a in
+     *  _block. */
+    private final long[][] _positions;
+    /** A bitset of the offsets in _block excluded for a crib. */
+    private final long[] _excluded;
+}
@@ -0,0 +1,102 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+
+import static enigma.TestUtils.*;
+import static enigma.CoincidenceSearchTest.*;
+
+/** The suite of all JUnit tests for the CribScanner class.
+ *  @author
+ */
+public class CribScannerTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5);
+
+    /* ***** TESTING UTILITIES ***** */
+
+    /** Return the admissible offsets of each of CRIBS in TEXT, found
+     *  letter by letter, as "K:OFFSET" strings. */
+    private List<String> naive(String text, List<String> cribs) {
+        List<String> result = new ArrayList<>();
+        for (int k = 0; k < cribs.size(); k++) {
+            String crib = cribs.get(k);
+            for (int o = 0; o + crib.length() <= text.length(); o++) {
+                boolean ok = true;
+                for (int i = 0; i < crib.length(); i++) {
+                    ok &= text.charAt(o + i) != crib.charAt(i);
+                }
+                if (ok) {
+                    result.add(k + ":" + o);
+                }
+            }
+        }
+        return result;
+    }
+
+    /** Return the offsets SCANNER finds in TEXT, as for naive. */
+    private List<String> scanned(CribScanner scanner, String text) {
+        List<String> result = new ArrayList<>();
+        scanner.scan(text, (crib, offset) -> result.add(crib + ":" + offset));
+        return result;
+    }
+
+    /** Return a random string of LEN letters from ALPHABET, using
+     *  RANDOM. */
+    private String random(String alphabet, int len, Random random) {
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < len; i++) {
+            result.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return result.toString();
+    }
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void checkAgainstNaive() {
+        Random random = new Random(61);
+        String letters = "ABCDE";
+        String text = random(letters, 3000, random);
+        List<String> cribs = Arrays.asList(random(letters, 1, random),
+                                           random(letters, 5, random),
+                                           random(letters, 9, random),
+                                           random(letters, 70, random));
+        List<String> expected = naive(text, cribs);
+        for (int block : new int[] { 1, 100, 150, 4096 }) {
+            List<String> found = scanned(
+                new CribScanner(threeRotors(), cribs, block), text);
+            found.sort(null);
+            List<String> sorted = new ArrayList<>(expected);
+            sorted.sort(null);
+            assertEquals("block " + block, sorted, found);
+        }
+    }
+
+    @Test
+    public void checkWhitespace() {
+        CribScanner scanner =
+            new CribScanner(threeRotors(), Arrays.asList("AB"));
+        assertEquals(Arrays.asList("0:0", "0:2"),
+                     scanned(scanner, "BA\nB A"));
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void checkNotDerangement() {
+        Collection<Rotor> all = new ArrayList<>();
+        all.add(new Reflector("R", new Permutation("(AB)", UPPER)));
+        new CribScanner(new Configuration(UPPER, 2, 1, all),
+                        Arrays.asList("A"));
+    }
+
+}
@@ -0,0 +1,496 @@
+package enigma;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import static enigma.EnigmaException.*;
+
+/** A catalog, after Rejewski's, of the cycle structures of the products
+ *  AD, BE and CF at every rotor order and setting.  A message key of three
+ *  letters xyz is sent doubled, as the six-letter indicator
+ *  A(x) B(y) C(z) D(x) E(y) F(z), where A..F are the permutations the
+ *  machine performs at its first six key presses from the day's ground
+ *  setting.  Since each is its own inverse, the indicators of a day's
+ *  traffic reveal AD, which takes the first letter of each indicator to
+ *  its fourth, and likewise BE and CF.  The lengths of their cycles do not
+ *  depend on the plugboard, so they point straight at the rotor order
+ *  and ground setting.
+ *
+ *  The catalog maps a 32-bit hash of those cycle lengths to the settings
+ *  that produce them.  On disk it is a header naming the rotor orders,
+ *  followed by one long per setting, holding the hash in its upper half
+ *  and the setting's number in its lower half, sorted.  It is built in
+ *  parallel and read through a memory map, so a lookup is a binary
+ *  search.  Each setting found is checked against the full cycle
+ *  structure, so hash collisions are never reported.
+ *  @author
+ */
+final class CycleCatalog implements Closeable {
+
+    /** Write to the file named NAME a catalog of every setting of the
+     *  rotor orders ORDERS (each naming the rotors from the reflector
+     *  rightwards) of machines made from CONFIG, computing it on POOL. */
+    static void build(Configuration config, List<String[]> orders,
+                      String name, ForkJoinPool pool) {
+        int size = config.alphabet().size();
+        long positions = positions(config);
+        long total = positions * orders.size();
+        if (total * Long.BYTES > MAX_ENTRIES_BYTES) {
+            throw error("catalog would be too large");
+        }
+        long[] entries = new long[(int) total];
+        pool.invoke(new BuildTask(config, orders, positions, entries,
+                                  0, orders.size()));
+        Arrays.parallelSort(entries);
+        try (DataOutputStream out = new DataOutputStream(
+                 new BufferedOutputStream(new FileOutputStream(name)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(config.numRotors());
+            out.writeInt(orders.size());
+            out.writeInt(size);
+            for (int c = 0; c < size; c++) {
+                out.writeChar(config.alphabet().toChar(c));
+            }
+            for (String[] order : orders) {
+                for (String rotor : order) {
+                    byte[] bytes = rotor.getBytes(StandardCharsets.UTF_8);
+                    out.writeShort(bytes.length);
+                    out.write(bytes);
+                }
+            }
+            while (out.size() % Long.BYTES != 0) {
+                out.writeByte(0);
+            }
+            out.writeLong(total);
+            for (long entry : entries) {
+                out.writeLong(entry);
+            }
+        } catch (IOException excp) {
+            throw error("could not write catalog %s: %s", name,
+                        excp.getMessage());
+        }
+    }
+
+    /** Write to the file named NAME a catalog of every setting of every
+     *  rotor order of machines made from CONFIG, using the common pool. */
+    static void build(Configuration config, String name) {
+        build(config, CoincidenceSearch.orders(config), name,
+              ForkJoinPool.commonPool());
+    }
+
+    /** Return the catalog in the file named NAME, which must have been
+     *  built for CONFIG. */
+    static CycleCatalog open(String name, Configuration config) {
+        try (FileChannel channel = FileChannel.open(Paths.get(name),
+                                                    StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw error("catalog %s is too large", name);
+            }
+            return new CycleCatalog(config, channel.map(
+                FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } catch (IOException excp) {
+            throw error("could not open %s", name);
+        }
+    }
+
+    /** A catalog for CONFIG read from MAP. */
+    private CycleCatalog(Configuration config, ByteBuffer map) {
+        _config = config;
+        try {
+            int size = config.alphabet().size();
+            int slots = config.numRotors();
+            if (map.getInt() != MAGIC || map.getInt() != slots) {
+                throw error("not a catalog for this configuration");
+            }
+            int numOrders = map.getInt();
+            if (map.getInt() != size) {
+                throw error("not a catalog for this configuration");
+            }
+            for (int c = 0; c < size; c++) {
+                if (map.getChar() != config.alphabet().toChar(c)) {
+                    throw error("not a catalog for this configuration");
+                }
+            }
+            if (numOrders < 0
+                || (long) numOrders * slots * Short.BYTES > map.remaining()) {
+                throw error("catalog is truncated");
+            }
+            _orders = new ArrayList<>();
+            for (int k = 0; k < numOrders; k++) {
+                String[] order = new String[slots];
+                for (int i = 0; i < slots; i++) {
+                    int len = map.getShort();
+                    if (len < 0 || len > map.remaining()) {
+                        throw error("catalog is truncated");
+                    }
+                    byte[] bytes = new byte[len];
+                    map.get(bytes);
+                    order[i] = new String(bytes, StandardCharsets.UTF_8);
+                }
+                _orders.add(order);
+            }
+            map.position((map.position() + Long.BYTES - 1)
+                         / Long.BYTES * Long.BYTES);
+            long total = map.getLong();
+            _entries = map.slice().asLongBuffer();
+            if (_entries.limit() != total) {
+                throw error("catalog is truncated");
+            }
+        } catch (BufferUnderflowException excp) {
+            throw error("catalog is truncated");
+        }
+        _positions = positions(config);
+    }
+
+    /** Return the number of settings of each rotor order of machines made
+     *  from CONFIG. */
+    private static long positions(Configuration config) {
+        long result = 1;
+        for (int i = 1; i < config.numRotors(); i++) {
+            result *= config.alphabet().size();
+            if (result > Integer.MAX_VALUE) {
+                throw error("too many settings to catalog");
+            }
+        }
+        return result;
+    }
+
+    /** Return the rotor orders cataloged. */
+    List<String[]> orders() {
+        return _orders;
+    }
+
+    /** Return the number of settings cataloged. */
+    int size() {
+        return _entries.limit();
+    }
+
+    /** Return every cataloged key whose products AD, BE and CF have
+     *  the same cycle structure as those in PRODUCTS.  Each key's setting
+     *  is its ground setting. */
+    List<Candidate> lookup(Permutation[] products) {
+        int size = _config.alphabet().size();
+        int[][] wanted = new int[PRODUCTS][size + 1];
+        int[] product = new int[size];
+        for (int k = 0; k < PRODUCTS; k++) {
+            for (int c = 0; c < size; c++) {
+                product[c] = products[k].permute(c);
+            }
+            cycleLengths(product, wanted[k]);
+        }
+        int hash = hash(wanted);
+        long lo = (long) hash << Integer.SIZE;
+        int first = lowerBound(lo);
+        int last = lowerBound(lo + (1L << Integer.SIZE));
+        if (hash == Integer.MAX_VALUE) {
+            last = _entries.limit();
+        }
+        List<Candidate> result = new ArrayList<>();
+        Machine machine = null;
+        String[] loaded = null;
+        int[] presses = new int[INDICATOR * size];
+        int[][] found = new int[PRODUCTS][size + 1];
+        for (int e = first; e < last; e++) {
+            long setting = _entries.get(e) & LOW_MASK;
+            String[] order = _orders.get((int) (setting / _positions));
+            if (order != loaded) {
+                machine = _config.newMachine();
+                machine.insertRotors(order);
+                loaded = order;
+            }
+            int[] posns = setPositions(machine, setting % _positions);
+            characteristic(machine, presses, product, found);
+            if (Arrays.deepEquals(wanted, found)) {
+                result.add(candidate(order, posns));
+            }
+        }
+        return result;
+    }
+
+    /** Return the index of the first entry not less than KEY. */
+    private int lowerBound(long key) {
+        int lo = 0;
+        int hi = _entries.limit();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (_entries.get(mid) < key) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /** Return the products AD, BE and CF over ALPHABET revealed by
+     *  INDICATORS, each six letters long (whitespace ignored).  The
+     *  indicators must show where every letter goes under each product. */
+    static Permutation[] products(List<String> indicators,
+                                  Alphabet alphabet) {
+        int size = alphabet.size();
+        int[][] maps = new int[PRODUCTS][size];
+        for (int[] map : maps) {
+            Arrays.fill(map, -1);
+        }
+        for (String indicator : indicators) {
+            int[] letters = Bombe.indices(alphabet, indicator);
+            if (letters.length != INDICATOR) {
+                throw error("indicator %s is not %d letters long",
+                            indicator, INDICATOR);
+            }
+            for (int k = 0; k < PRODUCTS; k++) {
+                int from = letters[k];
+                int to = letters[k + PRODUCTS];
+                if (maps[k][from] >= 0 && maps[k][from] != to) {
+                    throw error("indicators are inconsistent");
+                }
+                maps[k][from] = to;
+            }
+        }
+        Permutation[] result = new Permutation[PRODUCTS];
+        for (int k = 0; k < PRODUCTS; k++) {
+            result[k] = new Permutation(cycles(maps[k], alphabet, k),
+                                        alphabet);
+        }
+        return result;
+    }
+
+    /** Return the permutation MAP over ALPHABET in cycle notation.  MAP
+     *  describes product number K, whose name is used in errors. */
+    private static String cycles(int[] map, Alphabet alphabet, int k) {
+        StringBuilder result = new StringBuilder();
+        boolean[] seen = new boolean[map.length];
+        for (int start = 0; start < map.length; start++) {
+            if (seen[start]) {
+                continue;
+            }
+            result.append('(');
+            for (int c = start; !seen[c]; c = map[c]) {
+                if (map[c] < 0) {
+                    throw error("indicators do not determine %s",
+                                PRODUCT_NAMES[k]);
+                }
+                seen[c] = true;
+                result.append(alphabet.toChar(c));
+            }
+            result.append(')');
+        }
+        return result.toString();
+    }
+
+    /** Set the rotors of MACHINE to the setting numbered P and return
+     *  the settings, indexed by slot. */
+    private static int[] setPositions(Machine machine, long p) {
+        int size = machine.alphabet().size();
+        int[] posns = new int[machine.numRotors()];
+        for (int i = posns.length - 1; i > 0; i--) {
+            posns[i] = (int) (p % size);
+            p /= size;
+            machine.setPosition(i, posns[i]);
+        }
+        return posns;
+    }
+
+    /** Store in COUNTS[k][n] the number of cycles of length n in product
+     *  k at MACHINE's current setting, using PRESSES (of length
+     *  INDICATOR * size) and PRODUCT (of length size) as scratch.
+     *  Advances MACHINE. */
+    private static void characteristic(Machine machine, int[] presses,
+                                       int[] product, int[][] counts) {
+        int size = product.length;
+        machine.pressTables(INDICATOR, presses);
+        for (int k = 0; k < PRODUCTS; k++) {
+            int first = k * size;
+            int second = (k + PRODUCTS) * size;
+            for (int c = 0; c < size; c++) {
+                product[c] = presses[second + presses[first + c]];
+            }
+            cycleLengths(product, counts[k]);
+        }
+    }
+
+    /** Store in COUNTS[n] the number of cycles of length n in
+     *  permutation PERM, which it leaves unchanged. */
+    private static void cycleLengths(int[] perm, int[] counts) {
+        Arrays.fill(counts, 0);
+        for (int start = 0; start < perm.length; start++) {
+            if (perm[start] < 0) {
+                continue;
+            }
+            int len = 0;
+            for (int c = start; perm[c] >= 0; len++) {
+                int next = perm[c];
+                perm[c] = -1 - next;
+                c = next;
+            }
+            counts[len] += 1;
+        }
+        for (int c = 0; c < perm.length; c++) {
+            perm[c] = -1 - perm[c];
+        }
+    }
+
+    /** Return a 32-bit hash of cycle-length counts COUNTS. */
+    private static int hash(int[][] counts) {
+        long h = HASH_SEED;
+        for (int[] row : counts) {
+            for (int n : row) {
+                h = (h ^ n) * HASH_PRIME;
+            }
+        }
+        return (int) (h ^ (h >>> Integer.SIZE));
+    }
+
+    /** Return the key with rotors ORDER at settings POSNS. */
+    private Candidate candidate(String[] order, int[] posns) {
+        char[] setting = new char[posns.length - 1];
+        for (int i = 1; i < posns.length; i++) {
+            setting[i - 1] = _config.alphabet().toChar(posns[i]);
+        }
+        return new Candidate(order, new String(setting), "", "", 0.0);
+    }
+
+    @Override
+    public void close() {
+        _entries = null;
+    }
+
+    /** Computes the entries of a range of rotor orders. */
+    private static class BuildTask extends RecursiveAction {
+
+        /** A task that stores in ENTRIES the entry of each of the
+         *  POSITIONS settings of rotor orders ORDERS[k], for LO <= k <
+         *  HI, of machines made from CONFIG. */
+        BuildTask(Configuration config, List<String[]> orders,
+                  long positions, long[] entries, int lo, int hi) {
+            _config = config;
+            _orders = orders;
+            _positions = positions;
+            _entries = entries;
+            _lo = lo;
+            _hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (_hi - _lo > 1) {
+                int mid = (_lo + _hi) >>> 1;
+                invokeAll(new BuildTask(_config, _orders, _positions,
+                                        _entries, _lo, mid),
+                          new BuildTask(_config, _orders, _positions,
+                                        _entries, mid, _hi));
+                return;
+            }
+            int size = _config.alphabet().size();
+            int[] presses = new int[INDICATOR * size];
+            int[] product = new int[size];
+            int[][] counts = new int[PRODUCTS][size + 1];
+            for (int k = _lo; k < _hi; k++) {
+                Machine machine = _config.newMachine();
+                machine.insertRotors(_orders.get(k));
+                for (long p = 0; p < _positions; p++) {
+                    setPositions(machine, p);
+                    characteristic(machine, presses, product, counts);
+                    long setting = k * _positions + p;
+                    _entries[(int) setting] =
+                        ((long) hash(counts) << Integer.SIZE) | setting;
+                }
+            }
+        }
+
+        /** The configuration cataloged. */
+        private final Configuration _config;
+        /** The rotor orders cataloged. */
+        private final List<String[]> _orders;
+        /** The number of settings of each rotor order. */
+        private final long _positions;
+        /** Where the entries go. */
+        private final long[] _entries;
+        /** The range of rotor orders I compute. */
+        private final int _lo, _hi;
+    }
+
+    /** Build or query a catalog, as specified by ARGS.  With
+     *  ARGS = build CONFIG CATALOG, writes a catalog of every rotor order
+     *  of CONFIG to the file CATALOG.  With ARGS = find CONFIG CATALOG
+     *  [INPUT], reads six-letter indicators, one per line, from INPUT (by
+     *  default, the standard input) and prints the matching keys as
+     *  settings lines. */
+    public static void main(String... args) {
+        try {
+            if (args.length == 3 && args[0].equals("build")) {
+                build(Configuration.read(args[1]), args[2]);
+            } else if ((args.length == 3 || args.length == 4)
+                       && args[0].equals("find")) {
+                Configuration config = Configuration.read(args[1]);
+                List<String> indicators = new ArrayList<>();
+                try (LineReader input = args.length > 3
+                     ? LineReader.open(args[3]) : LineReader.of(System.in)) {
+                    while (input.hasNextLine()) {
+                        String line = input.nextLine().trim();
+                        if (!line.isEmpty()) {
+                            indicators.add(line);
+                        }
+                    }
+                }
+                try (CycleCatalog catalog = open(args[2], config)) {
+                    for (Candidate key : catalog.lookup(
+                             products(indicators, config.alphabet()))) {
+                        System.out.println(key);
+                    }
+                }
+            } else {
+                throw error("usage: build CONFIG CATALOG"
+                            + " | find CONFIG CATALOG [INPUT]");
+            }
+            return;
+        } catch (EnigmaException excp) {
+            System.err.printf("Error: %s%n", excp.getMessage());
+        }
+        System.exit(1);
+    }
+
+    /** Length of an indicator. */
+    static final int INDICATOR = 6;
+    /** Number of products. */
+    private static final int PRODUCTS = INDICATOR / 2;
+    /** Names of the products, for error messages. */
+    private static final String[] PRODUCT_NAMES = { "AD", "BE", "CF" };
+    /** Identifies a catalog file. */
+    private static final int MAGIC = 0x454e4343;
+    /** Largest size of the entries of a catalog, so that a catalog can be
+     *  mapped in one piece. */
+    private static final long MAX_ENTRIES_BYTES = Integer.MAX_VALUE / 2;
+    /** Mask for the setting number in an entry. */
+    private static final long LOW_MASK = 0xffffffffL;
+    /** Starting value of the hash. */
+    private static final long HASH_SEED = 0xcbf29ce484222325L;
+    /** Multiplier of the hash. */
+    private static final long HASH_PRIME = 0x100000001b3L;
+
+    /** The configuration cataloged. */
+    private final Configuration _config;
+    /** The rotor orders cataloged. */
+    private final List<String[]> _orders;
+    /** The number of settings of each rotor order. */
+    private final long _positions;
+    /** The sorted entries, mapped from the catalog file. */
+    private LongBuffer _entries;
+}
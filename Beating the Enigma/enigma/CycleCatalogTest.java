@@ -0,0 +1,135 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static enigma.TestUtils.*;
+import static enigma.CoincidenceSearchTest.*;
+
+/** The suite of all JUnit tests for the CycleCatalog class.
+ *  @author
+ */
+public class CycleCatalogTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(30);
+
+    /* ***** TESTING UTILITIES ***** */
+
+    /** Return COUNT indicators for random message keys, each doubled and
+     *  encrypted from the ground setting KEY by a machine made from
+     *  CONFIG, using RANDOM. */
+    private List<String> indicators(Configuration config, String key,
+                                    int count, Random random) {
+        List<String> result = new ArrayList<>();
+        for (int k = 0; k < count; k++) {
+            StringBuilder message = new StringBuilder();
+            for (int i = 0; i < 3; i++) {
+                message.append((char) ('A' + random.nextInt(26)));
+            }
+            result.add(encrypt(config, key, message.toString()
+                               + message.toString()));
+        }
+        return result;
+    }
+
+    /** Write CONTENTS to FILE and check that opening it as a catalog
+     *  for CONFIG reports it as truncated. */
+    private void checkTruncated(File file, byte[] contents,
+                                Configuration config) throws IOException {
+        Files.write(file.toPath(), contents);
+        try {
+            CycleCatalog.open(file.getPath(), config).close();
+            fail("damaged catalog accepted");
+        } catch (EnigmaException excp) {
+            assertEquals("catalog is truncated", excp.getMessage());
+        }
+    }
+
+    /** Offset of the number of rotor orders in a catalog. */
+    private static final int ORDER_COUNT = 2 * Integer.BYTES;
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void checkProducts() {
+        Alphabet abcd = new Alphabet("ABCD");
+        Permutation[] products = CycleCatalog.products(
+            Arrays.asList("ABCBAD", "BADABC", "CDACDB", "DCBDCA"), abcd);
+        assertEquals(3, products.length);
+        assertEquals(1, products[0].permute(0));
+        assertEquals(0, products[0].permute(1));
+        assertEquals(2, products[0].permute(2));
+        assertEquals(3, products[2].permute(2));
+        assertEquals(1, products[2].permute(0));
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void checkTooFewIndicators() {
+        CycleCatalog.products(Arrays.asList("ABCDEF"), new Alphabet());
+    }
+
+    @Test
+    public void checkLookup() throws IOException {
+        Configuration config = threeRotors();
+        File file = File.createTempFile("catalog", ".bin");
+        file.deleteOnExit();
+        List<String[]> orders = Arrays.asList(
+            new String[] { "B", "II", "I", "III" },
+            new String[] { "B", "III", "II", "I" });
+        CycleCatalog.build(config, orders, file.getPath(),
+                           java.util.concurrent.ForkJoinPool.commonPool());
+        String key = "* B II I III KPD (AR) (BT) (CS) (DE) (FO) (HN)";
+        List<String> indicators =
+            indicators(config, key, 300, new Random(1938));
+        try (CycleCatalog catalog =
+             CycleCatalog.open(file.getPath(), config)) {
+            assertEquals(2 * 26 * 26 * 26, catalog.size());
+            List<String> found = new ArrayList<>();
+            for (Candidate candidate : catalog.lookup(
+                     CycleCatalog.products(indicators, UPPER))) {
+                found.add(candidate.toString());
+            }
+            assertTrue(found.toString(),
+                       found.contains("* B II I III KPD"));
+            assertTrue(found.size() < 50);
+        }
+    }
+
+    @Test
+    public void checkCorruptCounts() throws IOException {
+        Configuration config = threeRotors();
+        File file = File.createTempFile("catalog", ".bin");
+        file.deleteOnExit();
+        List<String[]> orders = Arrays.asList(
+            new String[][] { { "B", "II", "I", "III" } });
+        CycleCatalog.build(config, orders, file.getPath(),
+                           java.util.concurrent.ForkJoinPool.commonPool());
+        byte[] good = Files.readAllBytes(file.toPath());
+        int firstName = ORDER_COUNT + 2 * Integer.BYTES
+            + UPPER.size() * Character.BYTES;
+        for (int value : new int[] { -1, Integer.MAX_VALUE }) {
+            byte[] bad = good.clone();
+            ByteBuffer.wrap(bad).putInt(ORDER_COUNT, value);
+            checkTruncated(file, bad, config);
+        }
+        for (short value : new short[] { -1, Short.MAX_VALUE }) {
+            byte[] bad = good.clone();
+            ByteBuffer.wrap(bad).putShort(firstName, value);
+            checkTruncated(file, bad, config);
+        }
+    }
+
+}
@@ -0,0 +1,237 @@
+package enigma;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/** Byte channels that convert the text passing through them with a
+ *  machine, in the manner of EnigmaFilter, so that a machine can sit
+ *  between files or sockets.  Bytes are decoded and encoded with a given
+ *  character set through fixed buffers, so memory use does not grow with
+ *  the length of the message.  Characters not in the machine's alphabet,
+ *  and failures of the underlying channels, cause an IOException.
+ *  @author
+ */
+final class EnigmaChannels {
+
+    /** Not instantiable. */
+    private EnigmaChannels() {
+    }
+
+    /** Return a channel whose bytes are those of SOURCE, decoded with
+     *  CHARSET, converted by MACHINE (with letters put in groups of five
+     *  iff GROUP, and all whitespace dropped iff SKIPWHITESPACE), and
+     *  encoded again with CHARSET.  Closing it closes SOURCE. */
+    static ReadableByteChannel readable(ReadableByteChannel source,
+                                        Charset charset, Machine machine,
+                                        boolean group,
+                                        boolean skipWhitespace) {
+        return new Readable(new EnigmaReader(
+            Channels.newReader(source, decoder(charset), -1), machine,
+            group, skipWhitespace), charset);
+    }
+
+    /** Return a channel that decodes the bytes written to it with
+     *  CHARSET, converts them with MACHINE (with letters put in groups of
+     *  five iff GROUP, and all whitespace dropped iff SKIPWHITESPACE),
+     *  and writes them, encoded again with CHARSET, to SINK.  Each write
+     *  consumes all the bytes given and passes on all it can convert
+     *  before returning; a character split across writes is held until
+     *  its last byte arrives.  Closing it closes SINK. */
+    static WritableByteChannel writable(WritableByteChannel sink,
+                                        Charset charset, Machine machine,
+                                        boolean group,
+                                        boolean skipWhitespace) {
+        return new Writable(sink, charset,
+                            new EnigmaFilter(machine, group,
+                                             skipWhitespace));
+    }
+
+    /** Return a decoder for CHARSET that replaces bad input. */
+    private static CharsetDecoder decoder(Charset charset) {
+        return charset.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
+    /** A channel reading the encoded output of an EnigmaReader. */
+    private static final class Readable implements ReadableByteChannel {
+
+        /** A channel reading the output of READER, encoded with
+         *  CHARSET. */
+        Readable(EnigmaReader reader, Charset charset) {
+            _reader = reader;
+            _encoder = charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            _chars.flip();
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            if (!_open) {
+                throw new ClosedChannelException();
+            }
+            if (!dst.hasRemaining()) {
+                return 0;
+            }
+            int start = dst.position();
+            while (dst.hasRemaining()) {
+                if (!_chars.hasRemaining()) {
+                    _chars.clear();
+                    int n = _reader.read(_chars.array(), 0,
+                                         _chars.capacity());
+                    if (n < 0) {
+                        _chars.flip();
+                        break;
+                    }
+                    _chars.limit(n);
+                }
+                if (_encoder.encode(_chars, dst, false).isOverflow()) {
+                    break;
+                }
+            }
+            int n = dst.position() - start;
+            return n == 0 && !_chars.hasRemaining() ? -1 : n;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return _open;
+        }
+
+        @Override
+        public void close() throws IOException {
+            _open = false;
+            _reader.close();
+        }
+
+        /** The source of characters. */
+        private final EnigmaReader _reader;
+        /** Encoder for its characters. */
+        private final CharsetEncoder _encoder;
+        /** Characters read but not yet encoded. */
+        private final CharBuffer _chars = CharBuffer.allocate(BUFFER_SIZE);
+        /** False once closed. */
+        private boolean _open = true;
+    }
+
+    /** A channel decoding, converting, and passing on to a GroupWriter
+     *  the bytes written to it. */
+    private static final class Writable implements WritableByteChannel {
+
+        /** A channel writing to SINK through FILTER, decoding and encoding
+         *  with CHARSET. */
+        Writable(WritableByteChannel sink, Charset charset,
+                 EnigmaFilter filter) {
+            _output = new GroupWriter(sink, charset);
+            _decoder = decoder(charset);
+            _filter = filter;
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            if (!_open) {
+                throw new ClosedChannelException();
+            }
+            int n = src.remaining();
+            try {
+                while (src.hasRemaining()) {
+                    int m = Math.min(src.remaining(), _bytes.remaining());
+                    ByteBuffer part = src.duplicate();
+                    part.limit(part.position() + m);
+                    _bytes.put(part);
+                    src.position(src.position() + m);
+                    _bytes.flip();
+                    try {
+                        decode(false);
+                    } finally {
+                        _bytes.compact();
+                    }
+                }
+                _output.flush();
+            } catch (EnigmaException excp) {
+                _bytes.clear();
+                _decoder.reset();
+                throw new IOException(excp.getMessage(), excp);
+            }
+            return n;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return _open;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!_open) {
+                return;
+            }
+            _open = false;
+            try {
+                try {
+                    _bytes.flip();
+                    decode(true);
+                    _decoder.flush(_chars);
+                    convert();
+                } finally {
+                    _output.close();
+                }
+            } catch (EnigmaException excp) {
+                throw new IOException(excp.getMessage(), excp);
+            }
+        }
+
+        /** Decode all complete characters in _bytes, converting them and
+         *  passing them on.  If END, the bytes end the input. */
+        private void decode(boolean end) {
+            CoderResult result;
+            do {
+                result = _decoder.decode(_bytes, _chars, end);
+                convert();
+            } while (result.isOverflow());
+        }
+
+        /** Convert the characters in _chars and pass them on, emptying
+         *  _chars.  If they are rejected, they are dropped. */
+        private void convert() {
+            _chars.flip();
+            try {
+                int n = _filter.filter(_chars.array(), 0, _chars.limit(),
+                                       _converted, 0);
+                _output.write(_converted, 0, n);
+            } finally {
+                _chars.clear();
+            }
+        }
+
+        /** The destination of the converted text. */
+        private final GroupWriter _output;
+        /** Decoder for the bytes written. */
+        private final CharsetDecoder _decoder;
+        /** Converts the decoded characters. */
+        private final EnigmaFilter _filter;
+        /** Bytes written but not yet decoded. */
+        private final ByteBuffer _bytes = ByteBuffer.allocate(BUFFER_SIZE);
+        /** Characters decoded but not yet converted. */
+        private final CharBuffer _chars = CharBuffer.allocate(BUFFER_SIZE);
+        /** Converted characters. */
+        private final char[] _converted =
+            new char[EnigmaFilter.maxOutput(BUFFER_SIZE)];
+        /** False once closed. */
+        private boolean _open = true;
+    }
+
+    /** Size of the internal buffers. */
+    private static final int BUFFER_SIZE = 1 << 13;
+}
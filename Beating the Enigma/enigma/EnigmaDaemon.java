@@ -0,0 +1,374 @@
+package enigma;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static enigma.EnigmaException.*;
+
+/** A long-running Enigma server.  It loads its configurations once and
+ *  then serves any number of concurrent client sessions over a loopback
+ *  TCP port or a Unix domain socket, sparing each message the cost of
+ *  starting a JVM and reading a configuration file.  Each session has a
+ *  machine of its own and runs on a virtual thread when the JVM provides
+ *  them (and on a pooled thread otherwise).
+ *
+ *  The protocol is line-based.  Each request is one line, answered by
+ *  one line that is either "OK", perhaps followed by a blank and a
+ *  result, or "ERROR MESSAGE".  An error leaves the session as it was.
+ *  Requests longer than MAX_REQUEST characters are refused.
+ *      CONFIG NAME    use the configuration loaded as NAME (initially,
+ *                     the first one loaded); forgets the settings.
+ *      SET SETTINGS   set the machine as by the settings line SETTINGS,
+ *                     in the format of Main's input, "* B BETA ...".
+ *      ENCRYPT TEXT   convert TEXT, ignoring blanks, and answer with the
+ *                     result in groups of five, as Main prints it.
+ *      DECRYPT TEXT   the same as ENCRYPT, the machine being reciprocal.
+ *      RESET          return the rotors to their state at the last SET.
+ *      QUIT           answer OK and end the session.
+ *  @author
+ */
+final class EnigmaDaemon implements Closeable {
+
+    /** A server for machines made from CONFIGS, keyed by the names
+     *  clients use for them.  The first is used until a client chooses
+     *  another. */
+    EnigmaDaemon(Map<String, Configuration> configs) {
+        if (configs.isEmpty()) {
+            throw error("no configurations");
+        }
+        for (Map.Entry<String, Configuration> entry : configs.entrySet()) {
+            _templates.put(entry.getKey(), entry.getValue().newMachine());
+        }
+        _defaultConfig = configs.keySet().iterator().next();
+    }
+
+    /** Start accepting clients at ADDRESS, which is either an
+     *  InetSocketAddress (port 0 for any free port) or a
+     *  UnixDomainSocketAddress. */
+    void start(SocketAddress address) {
+        try {
+            _server = address instanceof UnixDomainSocketAddress
+                ? ServerSocketChannel.open(StandardProtocolFamily.UNIX)
+                : ServerSocketChannel.open();
+            _server.bind(address);
+            _address = _server.getLocalAddress();
+        } catch (IOException | UnsupportedOperationException excp) {
+            throw error("could not listen on %s: %s", address,
+                        excp.getMessage());
+        }
+        Thread acceptor = new Thread(this::accept, "daemon");
+        acceptor.start();
+    }
+
+    /** Return the address I accept clients at. */
+    SocketAddress address() {
+        return _address;
+    }
+
+    /** Stop accepting clients and end all sessions. */
+    @Override
+    public void close() {
+        try {
+            if (_server != null) {
+                _server.close();
+            }
+            if (_address instanceof UnixDomainSocketAddress) {
+                Files.deleteIfExists(
+                    ((UnixDomainSocketAddress) _address).getPath());
+            }
+        } catch (IOException excp) {
+            /* Ignore. */
+        }
+        synchronized (this) {
+            for (SocketChannel client : _clients) {
+                try {
+                    client.close();
+                } catch (IOException excp) {
+                    /* Ignore. */
+                }
+            }
+        }
+        _sessions.shutdown();
+    }
+
+    /** Accept clients until my server socket is closed, serving each on
+     *  a session thread. */
+    private void accept() {
+        while (true) {
+            SocketChannel client;
+            try {
+                client = _server.accept();
+            } catch (IOException excp) {
+                return;
+            }
+            synchronized (this) {
+                _clients.add(client);
+            }
+            _sessions.execute(() -> serve(client));
+        }
+    }
+
+    /** Serve the session on CLIENT until it quits or its connection
+     *  fails. */
+    private void serve(SocketChannel client) {
+        Charset charset = Charset.defaultCharset();
+        try (SocketChannel c = client;
+             BufferedReader in = new BufferedReader(
+                 Channels.newReader(c, charset.newDecoder(), -1));
+             BufferedWriter out = new BufferedWriter(
+                 Channels.newWriter(c, charset.newEncoder(), -1))) {
+            Session session = new Session();
+            StringBuilder line = new StringBuilder();
+            while (readRequest(in, line)) {
+                String reply;
+                try {
+                    if (line.length() > MAX_REQUEST) {
+                        throw error("request longer than %d characters",
+                                    MAX_REQUEST);
+                    }
+                    String result = session.handle(line.toString());
+                    reply = result == null || result.isEmpty() ? OK
+                        : OK + " " + result;
+                } catch (EnigmaException excp) {
+                    reply = ERROR + " " + excp.getMessage();
+                }
+                out.write(reply);
+                out.newLine();
+                out.flush();
+                if (session.done()) {
+                    return;
+                }
+            }
+        } catch (IOException excp) {
+            /* Treat as a lost client. */
+        } finally {
+            synchronized (this) {
+                _clients.remove(client);
+            }
+        }
+    }
+
+    /** Read the next request line from IN into LINE, without its line
+     *  terminator, and return true, or return false if IN is exhausted.
+     *  Only the first MAX_REQUEST + 1 characters of a line are kept, so
+     *  that a client cannot fill memory with one endless line; the rest
+     *  are skipped. */
+    private static boolean readRequest(BufferedReader in, StringBuilder line)
+        throws IOException {
+        line.setLength(0);
+        int ch;
+        boolean any = false;
+        while ((ch = in.read()) >= 0 && ch != '\n') {
+            any = true;
+            if (line.length() <= MAX_REQUEST) {
+                line.append((char) ch);
+            }
+        }
+        if (ch < 0 && !any) {
+            return false;
+        }
+        int last = line.length() - 1;
+        if (last >= 0 && line.charAt(last) == '\r') {
+            line.setLength(last);
+        }
+        return true;
+    }
+
+    /** The state of one client's session. */
+    private class Session {
+
+        /** Carry out the request LINE, returning the result to send after
+         *  OK (null or empty if none). */
+        String handle(String line) {
+            String[] request = line.trim().split(" ", 2);
+            String arg = request.length > 1 ? request[1].trim() : "";
+            switch (request[0]) {
+            case CONFIG:
+                if (!_templates.containsKey(arg)) {
+                    throw error("no configuration named %s", arg);
+                }
+                _config = arg;
+                _machine = null;
+                return null;
+            case SET:
+                Machine machine = _templates.get(_config).copy();
+                try {
+                    Main.setUp(machine, arg);
+                } catch (IndexOutOfBoundsException excp) {
+                    throw error("Wrong Settings Format");
+                }
+                _machine = machine;
+                _key = machine.snapshot();
+                return null;
+            case ENCRYPT: case DECRYPT:
+                return convert(arg);
+            case RESET:
+                machine().restore(_key);
+                return null;
+            case QUIT:
+                _done = true;
+                return null;
+            default:
+                throw error("unknown request: %s", request[0]);
+            }
+        }
+
+        /** Return TEXT converted by my machine, in groups of five.  No
+         *  character is converted unless all are in the alphabet. */
+        private String convert(String text) {
+            Machine machine = machine();
+            Alphabet alphabet = machine.alphabet();
+            char[] letters = text.toCharArray();
+            for (char ch : letters) {
+                if (ch != ' ' && !alphabet.contains(ch)) {
+                    throw error("character %c not in alphabet", ch);
+                }
+            }
+            int len = machine.convert(letters, 0, letters.length,
+                                      letters, 0);
+            StringBuilder result = new StringBuilder(len + len / GROUP);
+            for (int i = 0; i < len; i++) {
+                if (i > 0 && i % GROUP == 0) {
+                    result.append(' ');
+                }
+                result.append(letters[i]);
+            }
+            return result.toString();
+        }
+
+        /** Return my machine, which must have been set. */
+        private Machine machine() {
+            if (_machine == null) {
+                throw error("no settings given");
+            }
+            return _machine;
+        }
+
+        /** Return true iff the client has quit. */
+        boolean done() {
+            return _done;
+        }
+
+        /** The name of my configuration. */
+        private String _config = _defaultConfig;
+        /** My machine, or null if not yet set. */
+        private Machine _machine;
+        /** The snapshot of _machine taken when it was set. */
+        private int[] _key;
+        /** True once the client has quit. */
+        private boolean _done;
+    }
+
+    /** Return an executor that runs each task on a new virtual thread,
+     *  if this JVM supports them, and otherwise on a pooled daemon
+     *  thread. */
+    static ExecutorService sessionExecutor() {
+        try {
+            return (ExecutorService) Executors.class
+                .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException excp) {
+            return Executors.newCachedThreadPool(task -> {
+                Thread thread = new Thread(task, "session");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /** Serve clients, as specified by ARGS, which are
+     *  [-p PORT | -u PATH] CONFIG....  Loads each CONFIG, a configuration
+     *  file, under its name as given, and listens on loopback port PORT
+     *  (by default, any free port) or at the Unix domain socket PATH.
+     *  Prints the address it listens at, then serves until killed. */
+    public static void main(String... args) {
+        try {
+            SocketAddress address =
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+            int k = 0;
+            if (args.length > 1 && args[0].equals("-p")) {
+                try {
+                    address = new InetSocketAddress(
+                        InetAddress.getLoopbackAddress(),
+                        Integer.parseInt(args[1]));
+                } catch (IllegalArgumentException excp) {
+                    throw error("bad port: %s", args[1]);
+                }
+                k = 2;
+            } else if (args.length > 1 && args[0].equals("-u")) {
+                address = UnixDomainSocketAddress.of(Paths.get(args[1]));
+                k = 2;
+            }
+            if (k >= args.length) {
+                throw error("usage: [-p PORT | -u PATH] CONFIG...");
+            }
+            Map<String, Configuration> configs = new LinkedHashMap<>();
+            for (; k < args.length; k += 1) {
+                configs.put(args[k], Configuration.load(args[k]));
+            }
+            EnigmaDaemon daemon = new EnigmaDaemon(configs);
+            daemon.start(address);
+            System.out.printf("listening on %s%n", daemon.address());
+            System.out.flush();
+            return;
+        } catch (EnigmaException excp) {
+            System.err.printf("Error: %s%n", excp.getMessage());
+        }
+        System.exit(1);
+    }
+
+    /** Choice of configuration. */
+    static final String CONFIG = "CONFIG";
+    /** Setting of the machine. */
+    static final String SET = "SET";
+    /** Encryption of a message. */
+    static final String ENCRYPT = "ENCRYPT";
+    /** Decryption of a message. */
+    static final String DECRYPT = "DECRYPT";
+    /** Return to the last setting. */
+    static final String RESET = "RESET";
+    /** End of a session. */
+    static final String QUIT = "QUIT";
+    /** Successful reply. */
+    static final String OK = "OK";
+    /** Failed reply. */
+    static final String ERROR = "ERROR";
+
+    /** Longest request line accepted, in characters. */
+    static final int MAX_REQUEST = 1 << 20;
+
+    /** Number of characters in an output group. */
+    private static final int GROUP = 5;
+
+    /** Unconfigured machines by configuration name, shared read-only by
+     *  all sessions, which work on copies. */
+    private final Map<String, Machine> _templates = new LinkedHashMap<>();
+    /** The configuration new sessions use. */
+    private final String _defaultConfig;
+    /** Runs the sessions. */
+    private final ExecutorService _sessions = sessionExecutor();
+    /** Connections of the sessions in progress. */
+    private final Set<SocketChannel> _clients = new HashSet<>();
+    /** The socket I accept clients on. */
+    private ServerSocketChannel _server;
+    /** The address of _server. */
+    private SocketAddress _address;
+}
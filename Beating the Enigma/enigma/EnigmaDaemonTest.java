@@ -0,0 +1,190 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static enigma.CoincidenceSearchTest.*;
+
+/** The suite of all JUnit tests for the EnigmaDaemon class.
+ *  @author
+ */
+public class EnigmaDaemonTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(20);
+
+    /* ***** TESTING UTILITIES ***** */
+
+    /** A client session with a daemon. */
+    private static class Client implements AutoCloseable {
+
+        /** A session with the daemon at ADDRESS. */
+        Client(SocketAddress address) throws IOException {
+            _channel = SocketChannel.open(address);
+            _in = new BufferedReader(Channels.newReader(_channel, "UTF-8"));
+            _out = new PrintWriter(Channels.newWriter(_channel, "UTF-8"));
+        }
+
+        /** Send REQUEST and return the reply. */
+        String send(String request) throws IOException {
+            _out.println(request);
+            _out.flush();
+            return _in.readLine();
+        }
+
+        @Override
+        public void close() throws IOException {
+            _channel.close();
+        }
+
+        /** The connection. */
+        private final SocketChannel _channel;
+        /** Replies. */
+        private final BufferedReader _in;
+        /** Requests. */
+        private final PrintWriter _out;
+    }
+
+    /** Return a daemon serving threeRotors() as "naval", started on a
+     *  free loopback port. */
+    private static EnigmaDaemon daemon() {
+        Map<String, Configuration> configs = new LinkedHashMap<>();
+        configs.put("naval", threeRotors());
+        EnigmaDaemon daemon = new EnigmaDaemon(configs);
+        daemon.start(
+            new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        return daemon;
+    }
+
+    /** Return TEXT without blanks, in groups of five. */
+    private static String grouped(String text) {
+        String letters = text.replace(" ", "");
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < letters.length(); i++) {
+            if (i > 0 && i % 5 == 0) {
+                result.append(' ');
+            }
+            result.append(letters.charAt(i));
+        }
+        return result.toString();
+    }
+
+    /** The key used in the tests. */
+    private static final String KEY = "* B II I III KPD";
+
+    /** Another key. */
+    private static final String OTHER_KEY = "* B III II I AAA (AZ) (QT)";
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void checkEncryptDecrypt() throws IOException {
+        String cipher = encrypt(threeRotors(), KEY, PLAIN);
+        try (EnigmaDaemon daemon = daemon();
+             Client client = new Client(daemon.address())) {
+            assertEquals("OK", client.send("SET " + KEY));
+            assertEquals("OK " + grouped(cipher),
+                         client.send("ENCRYPT " + PLAIN));
+            assertEquals("OK", client.send("RESET"));
+            assertEquals("OK " + grouped(PLAIN),
+                         client.send("DECRYPT " + grouped(cipher)));
+            assertEquals("OK", client.send("QUIT"));
+        }
+    }
+
+    @Test
+    public void checkSessionsIndependent() throws IOException {
+        String cipher = encrypt(threeRotors(), KEY, PLAIN);
+        String other = encrypt(threeRotors(), OTHER_KEY, PLAIN);
+        int half = PLAIN.length() / 2;
+        try (EnigmaDaemon daemon = daemon();
+             Client first = new Client(daemon.address());
+             Client second = new Client(daemon.address())) {
+            assertEquals("OK", first.send("SET " + KEY));
+            assertEquals("OK", second.send("SET " + OTHER_KEY));
+            String a = first.send("ENCRYPT " + PLAIN.substring(0, half));
+            String b = second.send("ENCRYPT " + PLAIN.substring(0, half));
+            a += " " + first.send("ENCRYPT " + PLAIN.substring(half))
+                .substring(2);
+            b += " " + second.send("ENCRYPT " + PLAIN.substring(half))
+                .substring(2);
+            assertEquals(cipher, a.substring(2).replace(" ", ""));
+            assertEquals(other, b.substring(2).replace(" ", ""));
+        }
+    }
+
+    @Test
+    public void checkErrors() throws IOException {
+        try (EnigmaDaemon daemon = daemon();
+             Client client = new Client(daemon.address())) {
+            assertTrue(client.send("ENCRYPT ABC").startsWith("ERROR"));
+            assertTrue(client.send("SET * B II I").startsWith("ERROR"));
+            assertTrue(client.send("SET * B II I III KP").startsWith("ERROR"));
+            assertTrue(client.send("CONFIG army").startsWith("ERROR"));
+            assertTrue(client.send("ROTATE").startsWith("ERROR"));
+            assertEquals("OK", client.send("CONFIG naval"));
+            assertEquals("OK", client.send("SET " + KEY));
+            assertTrue(client.send("ENCRYPT FROM 1").startsWith("ERROR"));
+            assertEquals("OK " + grouped(encrypt(threeRotors(), KEY, PLAIN)),
+                         client.send("ENCRYPT " + PLAIN));
+            assertTrue(client.send("SET " + KEY + " A1A").startsWith("ERROR"));
+            assertTrue(client.send("SET " + KEY + " AA").startsWith("ERROR"));
+            assertEquals("OK", client.send("RESET"));
+            assertEquals("OK " + grouped(encrypt(threeRotors(), KEY, PLAIN)),
+                         client.send("ENCRYPT " + PLAIN));
+        }
+    }
+
+    @Test
+    public void checkLongRequest() throws IOException {
+        char[] letters = new char[EnigmaDaemon.MAX_REQUEST + 10];
+        Arrays.fill(letters, 'A');
+        try (EnigmaDaemon daemon = daemon();
+             Client client = new Client(daemon.address())) {
+            assertEquals("OK", client.send("SET " + KEY));
+            assertTrue(client.send("ENCRYPT " + new String(letters))
+                       .startsWith("ERROR"));
+            assertEquals("OK " + grouped(encrypt(threeRotors(), KEY, PLAIN)),
+                         client.send("ENCRYPT " + PLAIN));
+        }
+    }
+
+    @Test
+    public void checkUnixDomainSocket() throws IOException {
+        Path dir = Files.createTempDirectory("daemon");
+        Path socket = dir.resolve("enigma.sock");
+        Map<String, Configuration> configs = new LinkedHashMap<>();
+        configs.put("naval", threeRotors());
+        try (EnigmaDaemon daemon = new EnigmaDaemon(configs)) {
+            daemon.start(UnixDomainSocketAddress.of(socket));
+            try (Client client = new Client(daemon.address())) {
+                assertEquals("OK", client.send("SET " + KEY));
+                assertEquals("OK " + grouped(encrypt(threeRotors(), KEY,
+                                                     "HELLO WORLD")),
+                             client.send("ENCRYPT HELLO WORLD"));
+            }
+        } finally {
+            Files.deleteIfExists(socket);
+            Files.delete(dir);
+        }
+    }
+
+}
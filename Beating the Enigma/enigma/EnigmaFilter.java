@@ -0,0 +1,87 @@
+package enigma;
+
+import static enigma.EnigmaException.*;
+
+/** Converts a stream of text with a machine, a chunk at a time, for the
+ *  stream adapters EnigmaReader, EnigmaWriter and EnigmaChannels.  Every
+ *  character in the alphabet is converted.  Whitespace is not converted
+ *  and does not step the machine:  it is either dropped or copied,
+ *  except that when converted letters are put in groups of five, only
+ *  line terminators are copied (the blanks between groups take the place
+ *  of the rest), and each starts a new group.  Any other character is an
+ *  error, and a chunk containing one is rejected whole, leaving the
+ *  machine as it was.  State carried from chunk to chunk is kept here,
+ *  so chunks may be of any size.
+ *  @author
+ */
+final class EnigmaFilter {
+
+    /** A filter converting with MACHINE, putting converted letters in
+     *  groups of five iff GROUP, and dropping all whitespace iff
+     *  SKIPWHITESPACE. */
+    EnigmaFilter(Machine machine, boolean group, boolean skipWhitespace) {
+        _machine = machine;
+        _alphabet = machine.alphabet();
+        _group = group;
+        _skipWhitespace = skipWhitespace;
+    }
+
+    /** Return the largest number of characters filter stores for LEN
+     *  characters of input. */
+    static int maxOutput(int len) {
+        return 2 * len;
+    }
+
+    /** Convert the LEN characters of IN starting at OFF, storing the
+     *  results in OUT starting at OUTOFF, which must have room for
+     *  maxOutput(LEN) characters.  Returns the number of characters
+     *  stored.  No character is converted unless all are either
+     *  whitespace or in the alphabet. */
+    int filter(char[] in, int off, int len, char[] out, int outOff) {
+        int end = off + len;
+        for (int i = off; i < end; i++) {
+            char ch = in[i];
+            if (!Character.isWhitespace(ch) && !_alphabet.contains(ch)) {
+                throw error("character %c not in alphabet", ch);
+            }
+        }
+        int k = outOff;
+        for (int i = off; i < end; i++) {
+            char ch = in[i];
+            if (Character.isWhitespace(ch)) {
+                if (_skipWhitespace) {
+                    continue;
+                } else if (ch == '\n' || ch == '\r') {
+                    _column = 0;
+                    out[k++] = ch;
+                } else if (!_group) {
+                    out[k++] = ch;
+                }
+                continue;
+            }
+            if (_group) {
+                if (_column == GROUP) {
+                    out[k++] = ' ';
+                    _column = 0;
+                }
+                _column += 1;
+            }
+            out[k++] = _alphabet.toChar(_machine.convert(_alphabet.toInt(ch)));
+        }
+        return k - outOff;
+    }
+
+    /** Number of characters in a group. */
+    private static final int GROUP = 5;
+
+    /** The machine I convert with. */
+    private final Machine _machine;
+    /** Its alphabet. */
+    private final Alphabet _alphabet;
+    /** True iff converted letters are grouped. */
+    private final boolean _group;
+    /** True iff whitespace is dropped. */
+    private final boolean _skipWhitespace;
+    /** The number of letters in the current group. */
+    private int _column;
+}
@@ -0,0 +1,201 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+import static enigma.CoincidenceSearchTest.*;
+
+/** The suite of all JUnit tests for EnigmaFilter and the stream adapters
+ *  built on it, EnigmaReader, EnigmaWriter and EnigmaChannels.
+ *  @author
+ */
+public class EnigmaFilterTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(10);
+
+    /* ***** TESTING UTILITIES ***** */
+
+    /** The key used in the tests. */
+    private static final String KEY = "* B II I III KPD";
+
+    /** A few lines of text, including an empty one. */
+    private static final String LINES =
+        "FROM HIS SHOULDER HIAWATHA\nTOOK THE CAMERA\n\n"
+        + "OF ROSEWOOD MADE OF SLIDING\nFOLDING ROSEWOOD\n";
+
+    /** Return a machine set to KEY. */
+    private static Machine machine() {
+        return Candidate.parse(KEY, 4).machine(threeRotors());
+    }
+
+    /** Return the output Main gives for TEXT, a sequence of message
+     *  lines, after KEY. */
+    private static String mainOutput(String text) {
+        Machine machine = machine();
+        StringBuilder result = new StringBuilder();
+        for (String line : text.split("\n", -1)) {
+            String converted = machine.convert(line);
+            for (int i = 0; i < converted.length(); i++) {
+                if (i > 0 && i % 5 == 0) {
+                    result.append(' ');
+                }
+                result.append(converted.charAt(i));
+            }
+            result.append('\n');
+        }
+        return result.substring(0, result.length() - 1);
+    }
+
+    /** Return a reader of TEXT that returns at most 3 characters per
+     *  read. */
+    private static Reader trickle(String text) {
+        return new StringReader(text) {
+            @Override
+            public int read(char[] cbuf, int off, int len)
+                throws IOException {
+                return super.read(cbuf, off, Math.min(len, 3));
+            }
+        };
+    }
+
+    /** Return everything read from READER, read 7 characters at a
+     *  time. */
+    private static String readAll(Reader reader) throws IOException {
+        StringBuilder result = new StringBuilder();
+        char[] buffer = new char[7];
+        int n;
+        while ((n = reader.read(buffer)) >= 0) {
+            result.append(buffer, 0, n);
+        }
+        return result.toString();
+    }
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void checkReaderGroupsLikeMain() throws IOException {
+        try (Reader reader =
+             new EnigmaReader(trickle(LINES), machine(), true, false)) {
+            assertEquals(mainOutput(LINES), readAll(reader));
+        }
+    }
+
+    @Test
+    public void checkReaderKeepsWhitespace() throws IOException {
+        String cipher = encrypt(threeRotors(), KEY, "FROMHISSHOULDER");
+        try (Reader reader = new EnigmaReader(
+                 new StringReader("FROM HIS\tSHOULDER\n"), machine(),
+                 false, false)) {
+            assertEquals(cipher.substring(0, 4) + " "
+                         + cipher.substring(4, 7) + "\t"
+                         + cipher.substring(7) + "\n", readAll(reader));
+        }
+    }
+
+    @Test
+    public void checkWriterSkipsWhitespace() throws IOException {
+        StringWriter sink = new StringWriter();
+        try (EnigmaWriter writer =
+             new EnigmaWriter(sink, machine(), false, true)) {
+            for (String line : LINES.split("\n")) {
+                writer.write(line);
+                writer.write('\n');
+            }
+        }
+        assertEquals(encrypt(threeRotors(), KEY,
+                             LINES.replaceAll("\\s", "")),
+                     sink.toString());
+    }
+
+    @Test(expected = IOException.class)
+    public void checkBadCharacter() throws IOException {
+        try (EnigmaWriter writer = new EnigmaWriter(
+                 new StringWriter(), machine(), true, false)) {
+            writer.write("FROM HIS 1");
+        }
+    }
+
+    @Test
+    public void checkBadChunkRejected() throws IOException {
+        StringWriter sink = new StringWriter();
+        try (EnigmaWriter writer =
+             new EnigmaWriter(sink, machine(), false, true)) {
+            try {
+                writer.write("FROM HIS 1");
+                fail("bad character accepted");
+            } catch (IOException excp) {
+                /* Expected. */
+            }
+            writer.write("FROM HIS");
+        }
+        assertEquals(encrypt(threeRotors(), KEY, "FROMHIS"),
+                     sink.toString());
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Charset charset = StandardCharsets.UTF_8;
+        try (WritableByteChannel channel = EnigmaChannels.writable(
+                 Channels.newChannel(bytes), charset, machine(),
+                 false, true)) {
+            try {
+                channel.write(ByteBuffer.wrap("FROM 1".getBytes(charset)));
+                fail("bad character accepted");
+            } catch (IOException excp) {
+                /* Expected. */
+            }
+            channel.write(ByteBuffer.wrap("FROM HIS".getBytes(charset)));
+        }
+        assertEquals(encrypt(threeRotors(), KEY, "FROMHIS"),
+                     new String(bytes.toByteArray(), charset));
+    }
+
+    @Test
+    public void checkChannels() throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            text.append(LINES);
+        }
+        String expected = mainOutput(text.toString());
+        Charset charset = StandardCharsets.UTF_8;
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (WritableByteChannel channel = EnigmaChannels.writable(
+                 Channels.newChannel(bytes), charset, machine(),
+                 true, false)) {
+            for (byte b : text.toString().getBytes(charset)) {
+                channel.write(ByteBuffer.wrap(new byte[] { b }));
+            }
+        }
+        assertEquals(expected, new String(bytes.toByteArray(), charset));
+
+        bytes.reset();
+        try (ReadableByteChannel channel = EnigmaChannels.readable(
+                 Channels.newChannel(new ByteArrayInputStream(
+                     text.toString().getBytes(charset))),
+                 charset, machine(), true, false)) {
+            ByteBuffer buffer = ByteBuffer.allocate(5);
+            while (channel.read(buffer) >= 0) {
+                bytes.write(buffer.array(), 0, buffer.position());
+                buffer.clear();
+            }
+        }
+        assertEquals(expected, new String(bytes.toByteArray(), charset));
+    }
+
+}
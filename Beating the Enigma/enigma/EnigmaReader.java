@@ -0,0 +1,67 @@
+package enigma;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/** A Reader that converts the characters of another Reader with a
+ *  machine as they are read, in the manner of EnigmaFilter.  It reads
+ *  through fixed buffers, so it uses constant memory however long the
+ *  message.  Characters not in the machine's alphabet cause an
+ *  IOException, and the chunk of input containing them is dropped.
+ *  @author
+ */
+final class EnigmaReader extends Reader {
+
+    /** A reader of the characters of SOURCE converted by MACHINE, put in
+     *  groups of five iff GROUP, and with all whitespace dropped iff
+     *  SKIPWHITESPACE. */
+    EnigmaReader(Reader source, Machine machine, boolean group,
+                 boolean skipWhitespace) {
+        _source = source;
+        _filter = new EnigmaFilter(machine, group, skipWhitespace);
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        while (_pos == _end) {
+            int n = _source.read(_raw, 0, _raw.length);
+            if (n < 0) {
+                return -1;
+            }
+            _pos = _end = 0;
+            try {
+                _end = _filter.filter(_raw, 0, n, _converted, 0);
+            } catch (EnigmaException excp) {
+                throw new IOException(excp.getMessage(), excp);
+            }
+        }
+        int n = Math.min(len, _end - _pos);
+        System.arraycopy(_converted, _pos, cbuf, off, n);
+        _pos += n;
+        return n;
+    }
+
+    @Override
+    public void close() throws IOException {
+        _source.close();
+    }
+
+    /** Size of the input buffer. */
+    private static final int BUFFER_SIZE = 1 << 13;
+
+    /** The reader I convert. */
+    private final Reader _source;
+    /** Converts what I read. */
+    private final EnigmaFilter _filter;
+    /** Characters read from _source. */
+    private final char[] _raw = new char[BUFFER_SIZE];
+    /** Converted characters. */
+    private final char[] _converted =
+        new char[EnigmaFilter.maxOutput(BUFFER_SIZE)];
+    /** The converted characters not yet returned are
+     *  _converted[_pos .. _end - 1]. */
+    private int _pos, _end;
+}
@@ -0,0 +1,60 @@
+package enigma;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/** A Writer that converts the characters written to it with a machine
+ *  and passes the results to another Writer, in the manner of
+ *  EnigmaFilter.  It converts through a fixed buffer, so it uses
+ *  constant memory however long the message.  Characters not in the
+ *  machine's alphabet cause an IOException, and the chunk of up to
+ *  BUFFER_SIZE characters containing them is not written.
+ *  @author
+ */
+final class EnigmaWriter extends Writer {
+
+    /** A writer to SINK of characters converted by MACHINE, put in groups
+     *  of five iff GROUP, and with all whitespace dropped iff
+     *  SKIPWHITESPACE. */
+    EnigmaWriter(Writer sink, Machine machine, boolean group,
+                 boolean skipWhitespace) {
+        _sink = sink;
+        _filter = new EnigmaFilter(machine, group, skipWhitespace);
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        for (int i = 0; i < len; i += BUFFER_SIZE) {
+            int n;
+            try {
+                n = _filter.filter(cbuf, off + i,
+                                   Math.min(BUFFER_SIZE, len - i),
+                                   _converted, 0);
+            } catch (EnigmaException excp) {
+                throw new IOException(excp.getMessage(), excp);
+            }
+            _sink.write(_converted, 0, n);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        _sink.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        _sink.close();
+    }
+
+    /** Number of characters converted at a time. */
+    private static final int BUFFER_SIZE = 1 << 13;
+
+    /** The writer I write to. */
+    private final Writer _sink;
+    /** Converts what is written to me. */
+    private final EnigmaFilter _filter;
+    /** Converted characters. */
+    private final char[] _converted =
+        new char[EnigmaFilter.maxOutput(BUFFER_SIZE)];
+}
@@ -0,0 +1,161 @@
+package enigma;
+
+import java.io.Closeable;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import static enigma.EnigmaException.*;
+
+/** Writes lines of text to a channel, optionally breaking them into
+ *  groups of five characters separated by blanks.  Output is collected
+ *  in reusable buffers and written when they fill or on flush.
+ *  @author
+ */
+final class GroupWriter implements Closeable {
+
+    /** A writer that creates or replaces the file named NAME. */
+    static GroupWriter open(String name) {
+        try {
+            return new GroupWriter(FileChannel.open(Paths.get(name),
+                                       StandardOpenOption.CREATE,
+                                       StandardOpenOption.WRITE,
+                                       StandardOpenOption.TRUNCATE_EXISTING));
+        } catch (IOException | RuntimeException excp) {
+            throw error("could not open %s", name);
+        }
+    }
+
+    /** A writer to the standard output. */
+    static GroupWriter standardOutput() {
+        return new GroupWriter(
+            new FileOutputStream(FileDescriptor.out).getChannel());
+    }
+
+    /** A writer to CHANNEL, encoding with the default character set. */
+    GroupWriter(WritableByteChannel channel) {
+        this(channel, Charset.defaultCharset());
+    }
+
+    /** A writer to CHANNEL, encoding with CHARSET. */
+    GroupWriter(WritableByteChannel channel, Charset charset) {
+        _channel = channel;
+        _encoder = charset.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        _chars = CharBuffer.allocate(BUFFER_SIZE);
+        _bytes = ByteBuffer.allocateDirect(
+            (int) (BUFFER_SIZE * _encoder.maxBytesPerChar()) + 1);
+    }
+
+    /** Write the LEN characters of MSG starting at OFF in groups of five
+     *  (except that the last group may have fewer letters), followed by
+     *  a line separator. */
+    void printGrouped(char[] msg, int off, int len) {
+        for (int i = 0; i < len; i++) {
+            if (i > 0 && i % GROUP == 0) {
+                put(' ');
+            }
+            put(msg[off + i]);
+        }
+        newLine();
+    }
+
+    /** Write the LEN characters of MSG starting at OFF, followed by a
+     *  line separator. */
+    void println(char[] msg, int off, int len) {
+        for (int i = 0; i < len; i++) {
+            put(msg[off + i]);
+        }
+        newLine();
+    }
+
+    /** Write the LEN characters of MSG starting at OFF as they are. */
+    void write(char[] msg, int off, int len) {
+        for (int i = 0; i < len; i++) {
+            put(msg[off + i]);
+        }
+    }
+
+    /** Write a line separator. */
+    void newLine() {
+        for (int i = 0; i < LINE_SEPARATOR.length(); i++) {
+            put(LINE_SEPARATOR.charAt(i));
+        }
+    }
+
+    /** Write everything buffered so far. */
+    void flush() {
+        _chars.flip();
+        encode();
+        _chars.clear();
+        drain();
+    }
+
+    @Override
+    public void close() {
+        flush();
+        try {
+            _channel.close();
+        } catch (IOException excp) {
+            throw error("could not close output");
+        }
+    }
+
+    /** Add CH to the output. */
+    private void put(char ch) {
+        if (!_chars.hasRemaining()) {
+            _chars.flip();
+            encode();
+            _chars.compact();
+        }
+        _chars.put(ch);
+    }
+
+    /** Encode the characters available in _chars, writing the bytes as
+     *  _bytes fills. */
+    private void encode() {
+        while (_encoder.encode(_chars, _bytes, false).isOverflow()) {
+            drain();
+        }
+    }
+
+    /** Write all bytes in _bytes to the channel. */
+    private void drain() {
+        _bytes.flip();
+        try {
+            while (_bytes.hasRemaining()) {
+                _channel.write(_bytes);
+            }
+        } catch (IOException excp) {
+            throw error("could not write output");
+        }
+        _bytes.clear();
+    }
+
+    /** Number of characters in a group. */
+    private static final int GROUP = 5;
+    /** Size of the character buffer. */
+    private static final int BUFFER_SIZE = 1 << 16;
+    /** The line separator used by println. */
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+
+    /** The channel I write to. */
+    private final WritableByteChannel _channel;
+    /** Encoder from characters to bytes. */
+    private final CharsetEncoder _encoder;
+    /** Characters not yet encoded, ready for adding more. */
+    private final CharBuffer _chars;
+    /** Encoded bytes not yet written. */
+    private final ByteBuffer _bytes;
+
+}
@@ -0,0 +1,228 @@
+package enigma;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import static enigma.EnigmaException.*;
+
+/** A source of lines of text read through a channel.  Files are read by
+ *  mapping them into memory a window at a time; other sources are read
+ *  through a buffer.  Lines end at a newline, which (along with a
+ *  preceding carriage return) is not part of the line.  The characters
+ *  of the most recently read line are kept in a reusable buffer.
+ *  @author
+ */
+final class LineReader implements Closeable {
+
+    /** A reader for the file named NAME. */
+    static LineReader open(String name) {
+        try {
+            return new LineReader(FileChannel.open(Paths.get(name),
+                                                   StandardOpenOption.READ));
+        } catch (IOException | RuntimeException excp) {
+            throw error("could not open %s", name);
+        }
+    }
+
+    /** A reader for the contents of STREAM. */
+    static LineReader of(InputStream stream) {
+        return new LineReader(Channels.newChannel(stream));
+    }
+
+    /** A reader for the bytes of CHANNEL, decoded using the default
+     *  character set.  If CHANNEL is a FileChannel, it is mapped into
+     *  memory. */
+    private LineReader(ReadableByteChannel channel) {
+        _channel = channel;
+        _decoder = Charset.defaultCharset().newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        if (channel instanceof FileChannel) {
+            _file = (FileChannel) channel;
+            _bytes = ByteBuffer.allocate(0);
+        } else {
+            _file = null;
+            _bytes = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            _bytes.flip();
+        }
+        _chars = CharBuffer.allocate(BUFFER_SIZE);
+        _chars.flip();
+        _line = new char[LINE_SIZE];
+    }
+
+    /** Returns true iff there is another line to read. */
+    boolean hasNextLine() {
+        return _chars.hasRemaining() || fillChars();
+    }
+
+    /** Returns true iff there is another line and its first word is
+     *  "*", marking it as a settings line. */
+    boolean settingsNext() {
+        int k = 0;
+        int ch;
+        do {
+            ch = peek(k);
+            k += 1;
+        } while (ch != -1 && ch != '\n' && Character.isWhitespace(ch));
+        if (ch != '*') {
+            return false;
+        }
+        int next = peek(k);
+        return next == -1 || Character.isWhitespace(next);
+    }
+
+    /** Read the next line into buffer(), returning its length. */
+    int readLine() {
+        if (!hasNextLine()) {
+            throw error("unexpected end of input");
+        }
+        int len = 0;
+        while (true) {
+            if (!_chars.hasRemaining() && !fillChars()) {
+                break;
+            }
+            char ch = _chars.get();
+            if (ch == '\n') {
+                break;
+            }
+            if (len == _line.length) {
+                char[] bigger = new char[2 * _line.length];
+                System.arraycopy(_line, 0, bigger, 0, len);
+                _line = bigger;
+            }
+            _line[len++] = ch;
+        }
+        if (len > 0 && _line[len - 1] == '\r') {
+            len -= 1;
+        }
+        return len;
+    }
+
+    /** Return the next line as a String. */
+    String nextLine() {
+        int len = readLine();
+        return new String(_line, 0, len);
+    }
+
+    /** Return the buffer holding the line last read by readLine.  Its
+     *  contents may be changed freely until the next read. */
+    char[] buffer() {
+        return _line;
+    }
+
+    @Override
+    public void close() {
+        try {
+            _channel.close();
+        } catch (IOException excp) {
+            throw error("could not close input");
+        }
+    }
+
+    /** Return the character OFFSET positions past the next one to be
+     *  read, or -1 if the input ends first. */
+    private int peek(int offset) {
+        while (_chars.remaining() <= offset) {
+            if (_chars.remaining() == _chars.capacity()) {
+                CharBuffer bigger = CharBuffer.allocate(2 * _chars.capacity());
+                bigger.put(_chars);
+                bigger.flip();
+                _chars = bigger;
+            }
+            int before = _chars.remaining();
+            fillChars();
+            if (_chars.remaining() == before) {
+                return -1;
+            }
+        }
+        return _chars.get(_chars.position() + offset);
+    }
+
+    /** Decode more characters into _chars, keeping any not yet read.
+     *  Returns true iff any characters are then available. */
+    private boolean fillChars() {
+        _chars.compact();
+        int start = _chars.position();
+        try {
+            while (!_flushed) {
+                CoderResult result = _decoder.decode(_bytes, _chars, _eof);
+                if (result.isOverflow() || _chars.position() > start) {
+                    break;
+                }
+                if (_eof) {
+                    _decoder.flush(_chars);
+                    _flushed = true;
+                    break;
+                }
+                readBytes();
+            }
+        } catch (IOException excp) {
+            throw error("could not read input");
+        } finally {
+            _chars.flip();
+        }
+        return _chars.hasRemaining();
+    }
+
+    /** Make more bytes available in _bytes, keeping any not yet
+     *  decoded, or set _eof if there are none. */
+    private void readBytes() throws IOException {
+        if (_file != null) {
+            long start = _mapEnd - _bytes.remaining();
+            long size = _file.size();
+            if (_mapEnd >= size) {
+                _eof = true;
+                return;
+            }
+            long len = Math.min(MAP_WINDOW, size - start);
+            _bytes = _file.map(FileChannel.MapMode.READ_ONLY, start, len);
+            _mapEnd = start + len;
+        } else {
+            _bytes.compact();
+            int n = _channel.read(_bytes);
+            _bytes.flip();
+            if (n < 0) {
+                _eof = true;
+            }
+        }
+    }
+
+    /** Size of the character and stream buffers. */
+    private static final int BUFFER_SIZE = 1 << 16;
+    /** Initial size of the line buffer. */
+    private static final int LINE_SIZE = 1 << 10;
+    /** Largest part of a file mapped at once. */
+    private static final long MAP_WINDOW = 1L << 30;
+
+    /** The channel I read from. */
+    private final ReadableByteChannel _channel;
+    /** _channel, if it is a file, else null. */
+    private final FileChannel _file;
+    /** Decoder from bytes to characters. */
+    private final CharsetDecoder _decoder;
+    /** Bytes read or mapped but not yet decoded. */
+    private ByteBuffer _bytes;
+    /** File offset just past the mapped window in _bytes. */
+    private long _mapEnd;
+    /** True once all bytes have been read. */
+    private boolean _eof;
+    /** True once the decoder has been flushed at the end of input. */
+    private boolean _flushed;
+    /** Characters decoded but not yet read, ready for reading. */
+    private CharBuffer _chars;
+    /** The line last read. */
+    private char[] _line;
+
+}
@@ -1,8 +1,15 @@
 package enigma;
 
 import java.util.Collection;
+import java.util.HashMap;
 
-/** Class that represents a complete enigma machine.
+import static enigma.EnigmaException.*;
+
+/** Class that represents a complete enigma machine.  Its rotors, and the
+ *  stepping tables compiled from them by insertRotors, are never changed
+ *  once made (insertRotors replaces them), so copies share them; what
+ *  varies from machine to machine is the rotor and ring settings, a few
+ *  ints per slot, which snapshot() and restore() save and reinstate.
  *  @author Deep Dayaramani
  */
 class Machine {
@@ -15,8 +22,62 @@ class Machine {
         _alphabet = alpha;
         _numRotors = numRotors;
         _pawls = pawls;
-        _allRotors = allRotors.toArray();
+        _allRotors = new HashMap<String, Rotor>();
+        for (Rotor rotor : allRotors) {
+            _allRotors.put(rotor.name(), rotor);
+        }
+        _plugboard = new Permutation("", alpha);
+        _weights = new long[numRotors];
+        long weight = 1;
+        int size = alpha.size();
+        for (int i = numRotors - 1; i > 0; i--) {
+            _weights[i] = weight;
+            if (weight > 0 && size > 0 && weight <= Long.MAX_VALUE / size) {
+                weight *= size;
+            } else {
+                weight = 0;
+            }
+        }
+        _keyed = weight > 0;
+    }
+
+    /** A new machine in the same configuration and state as ORIGINAL,
+     *  sharing its rotors, plugboard and stepping tables, but with its
+     *  own rotor settings and no composite cache. */
+    private Machine(Machine original) {
+        _alphabet = original._alphabet;
+        _numRotors = original._numRotors;
+        _pawls = original._pawls;
+        _allRotors = original._allRotors;
+        _plugboard = original._plugboard;
+        _weights = original._weights;
+        _keyed = original._keyed;
+        _rotors = original._rotors;
+        if (_rotors != null) {
+            _posns = original._posns.clone();
+            _rings = original._rings.clone();
+            _shifts = original._shifts.clone();
+        }
+        _notches = original._notches;
+        _doubleSteps = original._doubleSteps;
+        _moving = original._moving;
+        _notchDist = original._notchDist;
+        _notchPrefix = original._notchPrefix;
+        _notchCount = original._notchCount;
+        _stateKey = original._stateKey;
+        _run = original._run;
+    }
 
+    /** Return a new machine with my configuration and current settings,
+     *  which steps independently of me.  Takes time proportional to my
+     *  number of rotors. */
+    Machine copy() {
+        return new Machine(this);
+    }
+
+    /** Return my alphabet. */
+    Alphabet alphabet() {
+        return _alphabet;
     }
 
     /** Return the number of rotor slots I have. */
@@ -29,17 +90,27 @@ class Machine {
         return _pawls;
     }
 
+    /** Cache the composite permutation (from plugboard through the
+     *  rotors and reflector and back) for up to about MAXSTATES distinct
+     *  rotor states, so that converting a character in a state seen
+     *  before costs a single table lookup.  MAXSTATES <= 0 turns the
+     *  cache off.  Has no effect if my rotor states are too many to
+     *  number with a long. */
+    void setCompositeCache(int maxStates) {
+        if (maxStates <= 0 || !_keyed) {
+            _cache = null;
+        } else {
+            _cache = new CompositeCache(maxStates, _alphabet.size());
+        }
+    }
+
     /** Set my rotor slots to the rotors named ROTORS from my set of
      *  available rotors (ROTORS[0] names the reflector).
      *  Initially, all rotors are set at their 0 setting. */
     void insertRotors(String[] rotors) {
         _rotors = new Rotor[_numRotors];
         for (int i = 0; i < rotors.length; i++) {
-            for (int j = 0; j < _allRotors.length; j++) {
-                if (rotors[i].equals(((Rotor) _allRotors[j]).name())) {
-                    _rotors[i] = (Rotor) _allRotors[j];
-                }
-            }
+            _rotors[i] = _allRotors.get(rotors[i]);
             if (_rotors[i] == null) {
                 throw new EnigmaException("Bad Rotor Name");
             }
@@ -54,6 +125,64 @@ class Machine {
                 }
             }
         }
+        compileSlots();
+    }
+
+    /** Precompute the per-slot stepping metadata for my current rotors,
+     *  and put every rotor at its 0 setting and 0 ring setting. */
+    private void compileSlots() {
+        int size = _alphabet.size();
+        _posns = new int[_numRotors];
+        _rings = new int[_numRotors];
+        _shifts = new int[_numRotors];
+        _notches = new boolean[_numRotors][size];
+        _doubleSteps = new boolean[_numRotors];
+        int numMoving = 0;
+        for (int i = 0; i < _numRotors; i++) {
+            for (int k = 0; k < size; k++) {
+                _notches[i][k] = _rotors[i].atNotch(k);
+            }
+            if (_rotors[i].rotates()) {
+                numMoving++;
+                _doubleSteps[i] = i > 0 && _rotors[i - 1].rotates();
+            }
+        }
+        _moving = new int[numMoving];
+        for (int i = 0, k = 0; i < _numRotors; i++) {
+            if (_rotors[i].rotates()) {
+                _moving[k++] = i;
+            }
+        }
+        compileNotchDistances();
+        _stateKey = 0;
+        _run = 0;
+        if (_cache != null) {
+            _cache.clear();
+        }
+    }
+
+    /** Fill in _notchDist, _notchPrefix and _notchCount from _notches. */
+    private void compileNotchDistances() {
+        int size = _alphabet.size();
+        _notchDist = new int[_numRotors][size];
+        _notchPrefix = new int[_numRotors][size + 1];
+        _notchCount = new int[_numRotors];
+        for (int i = 0; i < _numRotors; i++) {
+            for (int k = 0; k < size; k++) {
+                _notchPrefix[i][k + 1] = _notchPrefix[i][k]
+                    + (_notches[i][k] ? 1 : 0);
+            }
+            _notchCount[i] = _notchPrefix[i][size];
+            int dist = NO_NOTCH;
+            for (int k = 2 * size - 1; k >= 0; k--) {
+                if (_notches[i][k % size]) {
+                    dist = 0;
+                } else if (dist != NO_NOTCH) {
+                    dist += 1;
+                }
+                _notchDist[i][k % size] = dist;
+            }
+        }
     }
 
     /** Set my rotors according to SETTING, which must be a string of
@@ -61,82 +190,503 @@ class Machine {
      *  to the leftmost rotor setting (not counting the reflector).  */
     void setRotors(String setting) {
         for (int i = 1; i < _rotors.length; i++) {
-            _rotors[i].set(setting.charAt(i - 1));
+            setPosition(i, _alphabet.toInt(setting.charAt(i - 1)));
         }
     }
 
+    /** Set the rotor in slot I (1 <= I < numRotors()) to setting POSN,
+     *  an index into my alphabet. */
+    void setPosition(int i, int posn) {
+        _posns[i] = posn;
+        _run = 0;
+        setShift(i, _rotors[i].shift(posn, _rings[i]));
+    }
+
+    /** Return my rotor settings followed by my ring settings, one per
+     *  slot, in the form restore() accepts.  Does not record my rotors or
+     *  plugboard. */
+    int[] snapshot() {
+        int[] state = new int[2 * _numRotors];
+        System.arraycopy(_posns, 0, state, 0, _numRotors);
+        System.arraycopy(_rings, 0, state, _numRotors, _numRotors);
+        return state;
+    }
+
+    /** Return my rotor and ring settings to those recorded in STATE, a
+     *  snapshot() of a machine with the same rotors.  Takes time
+     *  proportional to my number of rotors. */
+    void restore(int[] state) {
+        int size = _alphabet.size();
+        if (state.length != 2 * _numRotors) {
+            throw error("snapshot is for a machine with %d rotor slots",
+                        state.length / 2);
+        }
+        for (int i = 1; i < _numRotors; i++) {
+            int posn = state[i], ring = state[_numRotors + i];
+            if (posn < 0 || posn >= size || ring < 0 || ring >= size) {
+                throw error("bad setting in snapshot");
+            }
+            _posns[i] = posn;
+            _rings[i] = ring;
+            setShift(i, _rotors[i].shift(posn, ring));
+        }
+        _run = 0;
+    }
+
     /** Set the plugboard to PLUGBOARD. */
     void setPlugboard(Permutation plugboard) {
         _plugboard = plugboard;
+        if (_cache != null) {
+            _cache.clear();
+        }
     }
 
     /** Set the ring to RING. */
     void setRing(String ring) {
         for (int i = 1; i < _numRotors; i++) {
-            _rotors[i].setRingSetting(ring.charAt(i - 1));
+            _rings[i] = _alphabet.toInt(ring.charAt(i - 1));
+            setShift(i, _rotors[i].shift(_posns[i], _rings[i]));
         }
     }
 
+    /** Set the ring of the rotor in slot I (1 <= I < numRotors()) to
+     *  RING, an index into my alphabet. */
+    void setRing(int i, int ring) {
+        _rings[i] = ring;
+        setShift(i, _rotors[i].shift(_posns[i], ring));
+    }
+
+    /** Set the shift of slot I to SHIFT, keeping _stateKey up to date. */
+    private void setShift(int i, int shift) {
+        _stateKey += (shift - _shifts[i]) * _weights[i];
+        _shifts[i] = shift;
+    }
+
     /** Returns the result of converting the input character C (as an
      *  index in the range 0..alphabet size - 1), after first advancing
      *  the machine. */
     int convert(int c) {
-        boolean[] ifRotate = new boolean[_numRotors];
-        if (_plugboard == null) {
-            _plugboard = new Permutation("", _alphabet);
-        }
-        ifRotate[_numRotors - 1] = true;
-        for (int i = _numRotors - 1; i > 0; i--) {
-            if (_rotors[i].atNotch()) {
-                if ((_rotors[i - 1].rotates())) {
-                    ifRotate[i - 1] = true;
-                    if (_rotors[i].rotates()) {
-                        ifRotate[i] = true;
-                    }
-                }
-            }
+        step();
+        if (_cache == null) {
+            return encode(c);
         }
-        int j = 0;
-        while (j < _numRotors) {
-            if (ifRotate[j]) {
-                _rotors[j].advance();
-            }
-            j++;
+        int[] table = _cache.get(_stateKey);
+        if (table == null) {
+            table = _cache.put(_stateKey);
+            composite(table);
         }
+        return table[c];
+    }
+
+    /** Returns the result of passing C through the plugboard, rotors and
+     *  reflector, and back, with the rotors in their current settings. */
+    private int encode(int c) {
         int convRot = _plugboard.permute(c);
         for (int i = _numRotors - 1; i >= 0; i--) {
-            convRot = _rotors[i].convertForward(convRot);
+            convRot = _rotors[i].convertForward(convRot, _shifts[i]);
         }
         for (int i = 1; i < _numRotors; i++) {
-            convRot = _rotors[i].convertBackward(convRot);
+            convRot = _rotors[i].convertBackward(convRot, _shifts[i]);
         }
         convRot = _plugboard.permute(convRot);
         return convRot;
     }
 
+    /** Fill TABLE with the permutation encode() performs in the current
+     *  settings. */
+    private void composite(int[] table) {
+        composite(table, 0);
+    }
+
+    /** Fill TABLE[OFF + c], for each index c, with the permutation
+     *  encode() performs in the current settings.  Each entry is encoded
+     *  separately:  the permutation is its own inverse only when the
+     *  plugboard and reflector are, and neither need be. */
+    private void composite(int[] table, int off) {
+        int size = _alphabet.size();
+        for (int c = 0; c < size; c++) {
+            table[off + c] = encode(c);
+        }
+    }
+
+    /** Return the current settings of my rotors (not counting the
+     *  reflector), in the form accepted by setRotors. */
+    String rotorSettings() {
+        char[] result = new char[_numRotors - 1];
+        for (int i = 1; i < _numRotors; i++) {
+            result[i - 1] = _alphabet.toChar(_posns[i]);
+        }
+        return new String(result);
+    }
+
+    /** Put my rotors into the settings they would have after PRESSES
+     *  more key presses, without converting anything.  Stepping,
+     *  including the double step, is exactly that of convert.  Rather
+     *  than stepping one key press at a time, this moves directly from
+     *  one arrival of the second rotor from the right at a notch to the
+     *  next, so that for the usual single-notch rotors the work is
+     *  proportional to PRESSES divided by the square of the alphabet
+     *  size.  When that would exceed the number of possible rotor
+     *  states, it instead finds the cycle the rotors' settings fall into
+     *  and skips whole trips around it, so that the work never exceeds
+     *  a few times the number of rotor states. */
+    void seek(long presses) {
+        if (presses < 0) {
+            throw error("cannot seek backwards");
+        }
+        long size = _alphabet.size();
+        long states = 1;
+        for (int k = 0; k < _moving.length && states <= presses; k++) {
+            states *= size;
+        }
+        if (_keyed && presses / (size * size) > states) {
+            presses = skipCycles(presses);
+        }
+        int last = _numRotors - 1;
+        boolean lastRotates = _rotors[last].rotates();
+        boolean carries = lastRotates && last > 1
+            && _rotors[last - 1].rotates() && _notchCount[last] > 0;
+        while (presses > 0) {
+            if (!quiet()) {
+                step();
+                presses -= 1;
+            } else if (!carries) {
+                if (lastRotates) {
+                    advanceBy(last, presses);
+                }
+                presses = 0;
+            } else {
+                long hits = notchHits(last, presses);
+                long room = carriesBeforeNotch(last - 1);
+                if (hits <= room) {
+                    advanceBy(last, presses);
+                    advanceBy(last - 1, hits);
+                    presses = 0;
+                } else if (room > 0) {
+                    long used = nthNotchHit(last, room) + 1;
+                    advanceBy(last, used);
+                    advanceBy(last - 1, room);
+                    presses -= used;
+                } else if (_notchDist[last][_posns[last]] > 0) {
+                    long run = Math.min(presses,
+                                        _notchDist[last][_posns[last]]);
+                    advanceBy(last, run);
+                    presses -= run;
+                } else {
+                    step();
+                    presses -= 1;
+                }
+            }
+        }
+    }
+
+    /** Step one key press at a time until my settings are known to be
+     *  on a cycle, using Brent's algorithm, then drop whole trips around
+     *  that cycle from PRESSES.  Returns the number of key presses still
+     *  to be made, which is less than the length of the cycle. */
+    private long skipCycles(long presses) {
+        long power = 1, length = 1;
+        long tortoise = _stateKey;
+        step();
+        presses -= 1;
+        while (_stateKey != tortoise && presses > 0) {
+            if (power == length) {
+                tortoise = _stateKey;
+                power *= 2;
+                length = 0;
+            }
+            step();
+            presses -= 1;
+            length += 1;
+        }
+        return _stateKey == tortoise ? presses % length : presses;
+    }
+
+    /** Return true iff, until the rightmost rotor next reaches a notch,
+     *  key presses move only the rightmost rotor: no rotor other than
+     *  the rightmost is at a notch that would move itself or its left
+     *  neighbor. */
+    private boolean quiet() {
+        int last = _numRotors - 1;
+        for (int k = 0; k < _moving.length; k++) {
+            int i = _moving[k];
+            if (i == last) {
+                continue;
+            }
+            if (i + 1 != last && _notches[i + 1][_posns[i + 1]]) {
+                return false;
+            }
+            if (_doubleSteps[i] && _notches[i][_posns[i]]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Return the number of key presses among the next PRESSES at which
+     *  the rotor in slot I, advancing on every press, is at a notch. */
+    private long notchHits(int i, long presses) {
+        int size = _alphabet.size();
+        long full = presses / size;
+        int rest = (int) (presses % size);
+        int from = _posns[i];
+        int to = from + rest;
+        long hits = full * _notchCount[i];
+        if (to <= size) {
+            hits += _notchPrefix[i][to] - _notchPrefix[i][from];
+        } else {
+            hits += _notchPrefix[i][size] - _notchPrefix[i][from]
+                + _notchPrefix[i][to - size];
+        }
+        return hits;
+    }
+
+    /** Return the number of key presses, counting from 0, before the
+     *  press at which the rotor in slot I, advancing on every press, is
+     *  at a notch for the Nth time (N >= 1).  It must have a notch. */
+    private long nthNotchHit(int i, long n) {
+        int size = _alphabet.size();
+        long turns = (n - 1) / _notchCount[i];
+        long rest = (n - 1) % _notchCount[i];
+        int offset = _notchDist[i][_posns[i]];
+        for (long k = 0; k < rest; k++) {
+            offset += 1 + _notchDist[i][(_posns[i] + offset + 1) % size];
+        }
+        return turns * size + offset;
+    }
+
+    /** Return the number of times the rotor in slot I can be moved on by
+     *  the rotor to its right before it lands on a notch that matters
+     *  (one that makes it double-step and move its left neighbor), or
+     *  Long.MAX_VALUE if it never will. */
+    private long carriesBeforeNotch(int i) {
+        if (!_doubleSteps[i] || _notchCount[i] == 0) {
+            return Long.MAX_VALUE;
+        }
+        int size = _alphabet.size();
+        int next = _posns[i] + 1 == size ? 0 : _posns[i] + 1;
+        return _notchDist[i][next];
+    }
+
+    /** Advance the rotor in slot I by N positions. */
+    private void advanceBy(int i, long n) {
+        setPosition(i, (int) ((_posns[i] + n % _alphabet.size())
+                              % _alphabet.size()));
+    }
+
+    /** Store in TABLES the permutation applied by each of my next
+     *  PRESSES key presses:  TABLES[t * size + c] is the conversion of
+     *  index c by key press t (counting from 0), where size is my
+     *  alphabet size.  The tables pass through my plugboard, so callers
+     *  that want the rotors and reflector alone, as the searches do,
+     *  must first set an empty one.  Advances me PRESSES key presses. */
+    void pressTables(int presses, int[] tables) {
+        int size = _alphabet.size();
+        for (int t = 0; t < presses; t++) {
+            step();
+            composite(tables, t * size);
+        }
+    }
+
+    /** Return a CompiledMachine that tabulates my behavior for every
+     *  combination of settings of my rotating rotors, using my current
+     *  rotors, ring settings, plugboard and non-rotating rotor settings.
+     *  Its initial state is my current state.  My own state is not
+     *  changed. */
+    CompiledMachine compile() {
+        int size = _alphabet.size();
+        long states = 1;
+        for (int i = 0; i < _moving.length; i++) {
+            states *= size;
+            if (states * size > MAX_COMPILED) {
+                throw error("too many rotor states to compile");
+            }
+        }
+        int[] saved = _posns.clone();
+        char[] encrypt = new char[(int) states * size];
+        int[] next = new int[(int) states];
+        int[] table = new int[size];
+        for (int s = 0; s < states; s++) {
+            setState(s);
+            composite(table);
+            for (int c = 0; c < size; c++) {
+                encrypt[s * size + c] = (char) table[c];
+            }
+            step();
+            next[s] = state();
+        }
+        for (int i = 0; i < _moving.length; i++) {
+            setPosition(_moving[i], saved[_moving[i]]);
+        }
+        return new CompiledMachine(_alphabet, encrypt, next, state());
+    }
+
+    /** Return the settings of my rotating rotors, numbered as by
+     *  compile(): a number in base alphabet size whose most significant
+     *  digit is the setting of my leftmost rotating rotor. */
+    private int state() {
+        int s = 0;
+        for (int i = 0; i < _moving.length; i++) {
+            s = s * _alphabet.size() + _posns[_moving[i]];
+        }
+        return s;
+    }
+
+    /** Set my rotating rotors to the settings numbered S by state(). */
+    private void setState(int s) {
+        for (int i = _moving.length - 1; i >= 0; i--) {
+            setPosition(_moving[i], s % _alphabet.size());
+            s /= _alphabet.size();
+        }
+    }
+
+    /** Advance the rotors as for one key press.  The rightmost rotor
+     *  always moves; a rotor moves if the rotor to its right is at a
+     *  notch, or if it is at a notch itself and the rotor to its left
+     *  also rotates (the double step).  Slots are visited left to right
+     *  so that every test sees the settings from before the key press.
+     *  Within a run of key presses known to move only the rightmost
+     *  rotor, the tests are skipped; the length of the next run is
+     *  worked out after each key press that makes the tests. */
+    private void step() {
+        int last = _numRotors - 1;
+        if (_run > 0) {
+            _run -= 1;
+            advance(last);
+            return;
+        }
+        for (int k = 0; k < _moving.length; k++) {
+            int i = _moving[k];
+            if (i == last || _notches[i + 1][_posns[i + 1]]
+                    || (_doubleSteps[i] && _notches[i][_posns[i]])) {
+                advance(i);
+            }
+        }
+        if (_rotors[last].rotates() && quiet()) {
+            _run = _notchDist[last][_posns[last]];
+        }
+    }
+
+    /** Advance the rotor in slot I by one position. */
+    private void advance(int i) {
+        int size = _alphabet.size();
+        _posns[i] = _posns[i] + 1 == size ? 0 : _posns[i] + 1;
+        if (_shifts[i] + 1 == size) {
+            _shifts[i] = 0;
+            _stateKey -= (size - 1) * _weights[i];
+        } else {
+            _shifts[i] += 1;
+            _stateKey += _weights[i];
+        }
+    }
+
     /** Returns the encoding/decoding of MSG, updating the state of
      *  the rotors accordingly. */
     String convert(String msg) {
-        msg = msg.replace(" ", "");
-        String msgOut = "";
-        for (int i = 0; i < msg.length(); i++) {
-            int convNo = convert(_alphabet.toInt(msg.charAt(i)));
-            msgOut += _alphabet.toChar(convNo);
+        char[] buffer = msg.toCharArray();
+        int len = convert(buffer, 0, buffer.length, buffer, 0);
+        return new String(buffer, 0, len);
+    }
+
+    /** Encode or decode the LEN characters of IN starting at OFF, storing
+     *  the results in OUT starting at OUTOFF and updating the state of
+     *  the rotors accordingly.  Blanks in the input are skipped; any
+     *  other character must be in my alphabet.  IN and OUT may be the
+     *  same array provided OUTOFF <= OFF.  Returns the number of
+     *  characters stored. */
+    int convert(char[] in, int off, int len, char[] out, int outOff) {
+        int k = outOff;
+        for (int i = off, end = off + len; i < end; i++) {
+            char ch = in[i];
+            if (ch == ' ') {
+                continue;
+            }
+            int index = _alphabet.toInt(ch);
+            if (index < 0) {
+                throw error("character %c not in alphabet", ch);
+            }
+            out[k++] = _alphabet.toChar(convert(index));
         }
-        return msgOut;
+        return k - outOff;
     }
 
+    /** As for convert(char[], int, int, char[], int), but on bytes, each
+     *  of which stands for the character with the same code (as in
+     *  ISO-8859-1).  Requires that every character in my alphabet have
+     *  a code below 256. */
+    int convert(byte[] in, int off, int len, byte[] out, int outOff) {
+        if (!_alphabet.singleByte()) {
+            throw error("alphabet is not a single-byte alphabet");
+        }
+        int k = outOff;
+        for (int i = off, end = off + len; i < end; i++) {
+            char ch = (char) (in[i] & BYTE_MASK);
+            if (ch == ' ') {
+                continue;
+            }
+            int index = _alphabet.toInt(ch);
+            if (index < 0) {
+                throw error("character %c not in alphabet", ch);
+            }
+            out[k++] = (byte) _alphabet.toChar(convert(index));
+        }
+        return k - outOff;
+    }
+
+    /** Value of _notchDist for rotors without notches. */
+    private static final int NO_NOTCH = Integer.MAX_VALUE;
+
+    /** Largest number of table entries compile() will produce. */
+    private static final long MAX_COMPILED = 1 << 28;
+
+    /** Mask selecting the unsigned value of a byte. */
+    private static final int BYTE_MASK = 0xff;
+
     /** Common alphabet of my rotors. */
     private final Alphabet _alphabet;
     /** Number of Rotors for my rotors. */
     private int _numRotors;
     /** Number of pawls for my Machine. */
     private int _pawls;
-    /** All Rotors available to set up the Machine. */
-    private Object[] _allRotors;
+    /** All Rotors available to set up the Machine, keyed by name. */
+    private HashMap<String, Rotor> _allRotors;
     /** Set of Rotors for this Machine. */
     private Rotor[] _rotors;
     /** Plugboard for this Machine. */
     private Permutation _plugboard;
+    /** Current setting of the rotor in each slot. */
+    private int[] _posns;
+    /** Ring setting of the rotor in each slot. */
+    private int[] _rings;
+    /** For each slot, its setting minus its ring setting, modulo the
+     *  alphabet size. */
+    private int[] _shifts;
+    /** _notches[i][k] is true iff the rotor in slot I is at a notch when
+     *  at setting K. */
+    private boolean[][] _notches;
+    /** True for each rotating slot whose left neighbour also rotates, so
+     *  that it double-steps when at a notch. */
+    private boolean[] _doubleSteps;
+    /** Indices of the rotating slots, in increasing order. */
+    private int[] _moving;
+    /** _notchDist[i][k] is the number of positions the rotor in slot I
+     *  must advance from setting K to reach a notch, or NO_NOTCH. */
+    private int[][] _notchDist;
+    /** _notchPrefix[i][k] is the number of notches of the rotor in slot
+     *  I at settings below K. */
+    private int[][] _notchPrefix;
+    /** The number of notches of the rotor in each slot. */
+    private int[] _notchCount;
+    /** Place value of each slot's shift in _stateKey. */
+    private final long[] _weights;
+    /** True iff every combination of shifts has a distinct _stateKey. */
+    private final boolean _keyed;
+    /** The shifts of all slots, read as a number in base alphabet size. */
+    private long _stateKey;
+    /** The number of coming key presses known to move only the rightmost
+     *  rotor (0 if unknown). */
+    private int _run;
+    /** Composite permutations of recently seen states, or null. */
+    private CompositeCache _cache;
 
 }
@@ -0,0 +1,292 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.ForkJoinPool;
+
+import static enigma.TestUtils.*;
+
+/** The suite of all JUnit tests for the Machine class.
+ *  @author
+ */
+public class MachineTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5);
+
+    /* ***** TESTING UTILITIES ***** */
+
+    /** Return a moving naval rotor named NAME with NOTCHES. */
+    private Rotor moving(String name, String notches) {
+        return new MovingRotor(name, new Permutation(NAVALA.get(name), UPPER),
+                               notches);
+    }
+
+    /** Return a five-slot machine with the naval rotors, set up as
+     *  "* B Beta III IV I AXLE". */
+    private Machine navalMachine() {
+        Collection<Rotor> all = new ArrayList<>();
+        all.add(moving("I", "Q"));
+        all.add(moving("II", "E"));
+        all.add(moving("III", "V"));
+        all.add(moving("IV", "J"));
+        all.add(new FixedRotor("Beta",
+                               new Permutation(NAVALA.get("Beta"), UPPER)));
+        all.add(new Reflector("B", new Permutation(NAVALA.get("B"), UPPER)));
+        Machine machine = new Machine(UPPER, 5, 3, all);
+        machine.insertRotors(new String[] { "B", "Beta", "III", "IV", "I" });
+        machine.setRotors("AXLE");
+        return machine;
+    }
+
+    /** Return naval rotors together with rotors with several notches,
+     *  adjacent notches, and notches at Z and A. */
+    private Collection<Rotor> steppingRotors() {
+        Collection<Rotor> all = new ArrayList<>();
+        all.add(moving("I", "Q"));
+        all.add(moving("II", "E"));
+        all.add(moving("III", "V"));
+        all.add(moving("IV", "J"));
+        all.add(moving("VI", "ZM"));
+        all.add(new MovingRotor("X", new Permutation("", UPPER), "ABCQ"));
+        all.add(new MovingRotor("X2", new Permutation("", UPPER), "ZA"));
+        all.add(new FixedRotor("Beta",
+                               new Permutation(NAVALA.get("Beta"), UPPER)));
+        all.add(new Reflector("B", new Permutation(NAVALA.get("B"), UPPER)));
+        return all;
+    }
+
+    /** The first line of testing/correct/carroll.in. */
+    private static final String PLAIN = "FROM HIS SHOULDER HIAWATHA";
+    /** The first line of testing/correct/carroll.out, without blanks. */
+    private static final String CIPHER = "HYIHLBKOMLIUYDCMPPSFSZW";
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void checkConvertString() {
+        assertEquals(CIPHER, navalMachine().convert(PLAIN));
+        assertEquals(PLAIN.replace(" ", ""), navalMachine().convert(CIPHER));
+    }
+
+    @Test
+    public void checkConvertChars() {
+        char[] buffer = ("xx" + PLAIN).toCharArray();
+        int len = navalMachine().convert(buffer, 2, PLAIN.length(),
+                                         buffer, 1);
+        assertEquals(CIPHER.length(), len);
+        assertEquals(CIPHER, new String(buffer, 1, len));
+    }
+
+    @Test
+    public void checkConvertBytes() {
+        byte[] in = PLAIN.getBytes();
+        byte[] out = new byte[in.length];
+        int len = navalMachine().convert(in, 0, in.length, out, 0);
+        assertEquals(CIPHER, new String(out, 0, len));
+    }
+
+    @Test
+    public void checkCompositeCache() {
+        Machine plain = navalMachine();
+        Machine cached = navalMachine();
+        cached.setCompositeCache(64);
+        cached.setPlugboard(new Permutation("(HQ) (EX) (IP) (TR) (BY)",
+                                            UPPER));
+        plain.setPlugboard(new Permutation("(HQ) (EX) (IP) (TR) (BY)",
+                                           UPPER));
+        for (int i = 0; i < 3000; i += 1) {
+            int c = (i * 7) % UPPER.size();
+            assertEquals(msg("cached", "character %d", i),
+                         plain.convert(c), cached.convert(c));
+        }
+    }
+
+    @Test
+    public void checkCompositeCacheCyclicPlugboard() {
+        Machine plain = navalMachine();
+        Machine cached = navalMachine();
+        cached.setCompositeCache(64);
+        cached.setPlugboard(new Permutation("(ABC)", UPPER));
+        plain.setPlugboard(new Permutation("(ABC)", UPPER));
+        String msg = PLAIN + PLAIN + PLAIN;
+        assertEquals(plain.convert(msg), cached.convert(msg));
+    }
+
+    @Test
+    public void checkCompile() {
+        Machine machine = navalMachine();
+        machine.setRing("BCFG");
+        CompiledMachine compiled = machine.compile();
+        assertEquals(UPPER.size() * UPPER.size() * UPPER.size(),
+                     compiled.numStates());
+        int state = compiled.initialState();
+        for (int i = 0; i < 20000; i += 1) {
+            int c = (i * 11) % UPPER.size();
+            state = compiled.step(state);
+            assertEquals(msg("compiled", "character %d", i),
+                         machine.convert(c), compiled.encrypt(state, c));
+        }
+    }
+
+    @Test
+    public void checkCompileCyclicPlugboard() {
+        Machine machine = navalMachine();
+        machine.setPlugboard(new Permutation("(ABC) (XY)", UPPER));
+        CompiledMachine compiled = machine.compile();
+        int state = compiled.initialState();
+        for (int i = 0; i < 2000; i += 1) {
+            int c = (i * 5) % UPPER.size();
+            state = compiled.step(state);
+            assertEquals(msg("compiled", "character %d", i),
+                         machine.convert(c), compiled.encrypt(state, c));
+        }
+    }
+
+    @Test
+    public void checkSeek() {
+        String[][] orders = {
+            { "B", "Beta", "III", "IV", "I" },
+            { "B", "Beta", "VI", "I", "II" },
+            { "B", "Beta", "X", "VI", "X2" },
+            { "B", "Beta", "I", "X2", "X" },
+        };
+        long[] lengths = { 0, 1, 5, 25, 26, 27, 600, 677, 5000, 40000 };
+        Collection<Rotor> all = steppingRotors();
+        String[] starts = { "AAAA", "AXLE", "AZPU", "AAAZ", "ZABY" };
+        for (String[] order : orders) {
+            for (String start : starts) {
+                for (long len : lengths) {
+                    Machine stepped = new Machine(UPPER, 5, 3, all);
+                    stepped.insertRotors(order);
+                    stepped.setRotors(start);
+                    Machine sought = new Machine(UPPER, 5, 3, all);
+                    sought.insertRotors(order);
+                    sought.setRotors(start);
+                    for (long k = 0; k < len; k += 1) {
+                        stepped.convert(0);
+                    }
+                    sought.seek(len);
+                    assertEquals(msg(order[2] + order[3] + order[4],
+                                     "%s + %d", start, len),
+                                 stepped.rotorSettings(),
+                                 sought.rotorSettings());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void checkRuns() {
+        String[][] orders = {
+            { "B", "Beta", "III", "IV", "I" },
+            { "B", "Beta", "VI", "I", "II" },
+            { "B", "Beta", "X", "VI", "X2" },
+            { "B", "Beta", "I", "X2", "X" },
+        };
+        Collection<Rotor> all = steppingRotors();
+        for (String[] order : orders) {
+            for (String start : new String[] { "AAAA", "AXLE", "ZABY" }) {
+                Machine running = new Machine(UPPER, 5, 3, all);
+                running.insertRotors(order);
+                running.setRotors(start);
+                Machine reset = new Machine(UPPER, 5, 3, all);
+                reset.insertRotors(order);
+                reset.setRotors(start);
+                for (int k = 0; k < 2000; k += 1) {
+                    reset.setRotors(reset.rotorSettings());
+                    assertEquals(reset.convert(k % 26),
+                                 running.convert(k % 26));
+                    assertEquals(msg(order[2] + order[3] + order[4],
+                                     "%s + %d", start, k + 1),
+                                 reset.rotorSettings(),
+                                 running.rotorSettings());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void checkDoubleStep() {
+        Machine machine = navalMachine();
+        machine.insertRotors(new String[] { "B", "Beta", "I", "II", "III" });
+        machine.setRotors("AADU");
+        String[] expected = { "AADV", "AAEW", "ABFX", "ABFY" };
+        for (String settings : expected) {
+            machine.convert(0);
+            assertEquals(settings, machine.rotorSettings());
+        }
+    }
+
+    @Test
+    public void checkRingsReset() {
+        Machine machine = navalMachine();
+        machine.setRing("BCDE");
+        machine.insertRotors(new String[] { "B", "Beta", "III", "IV", "I" });
+        machine.setRotors("AXLE");
+        assertEquals(CIPHER, machine.convert(PLAIN));
+    }
+
+    @Test
+    public void checkSnapshot() {
+        Machine machine = navalMachine();
+        machine.setRing("BCDE");
+        machine.convert("ABCDEFGHIJKLMNOPQRSTUVWXYZ");
+        int[] state = machine.snapshot();
+        Machine branch = machine.copy();
+        String first = machine.convert(PLAIN + PLAIN);
+        String settings = machine.rotorSettings();
+        machine.restore(state);
+        assertEquals(first, machine.convert(PLAIN + PLAIN));
+        assertEquals(settings, machine.rotorSettings());
+        assertEquals(first, branch.convert(PLAIN + PLAIN));
+        Machine other = navalMachine();
+        other.restore(state);
+        assertArrayEquals(state, other.snapshot());
+        assertEquals(first, other.convert(PLAIN + PLAIN));
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void checkBadSnapshot() {
+        navalMachine().restore(new int[] { 0, 1, 2 });
+    }
+
+    @Test
+    public void checkLongSeek() {
+        Machine once = navalMachine();
+        Machine inSteps = navalMachine();
+        once.seek(20000000L);
+        for (int k = 0; k < 20; k += 1) {
+            inSteps.seek(1000000L);
+        }
+        assertEquals(inSteps.rotorSettings(), once.rotorSettings());
+    }
+
+    @Test
+    public void checkParallel() {
+        StringBuilder text = new StringBuilder();
+        for (int k = 0; k < 2000; k += 1) {
+            text.append(PLAIN).append(' ');
+        }
+        String msg = text.toString();
+        ParallelConverter parallel =
+            new ParallelConverter(new ForkJoinPool(4), 97);
+        Machine serial = navalMachine();
+        Machine chunked = navalMachine();
+        assertEquals(serial.convert(msg), parallel.convert(chunked, msg));
+        assertEquals(serial.rotorSettings(), chunked.rotorSettings());
+        assertEquals(serial.convert(PLAIN), chunked.convert(PLAIN));
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void checkBadCharacter() {
+        navalMachine().convert("HELLO WORLD!");
+    }
+
+}
@@ -1,13 +1,9 @@
 package enigma;
 
-import java.io.File;
-import java.io.IOException;
-import java.io.PrintStream;
-
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.NoSuchElementException;
-import java.util.Scanner;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
 
 import static enigma.EnigmaException.*;
 
@@ -41,211 +37,242 @@ public final class Main {
             throw error("Only 1, 2, or 3 command-line arguments allowed");
         }
 
-        _config = getInput(args[0]);
+        _config = Configuration.load(args[0]);
 
         if (args.length > 1) {
-            _input = getInput(args[1]);
+            _input = LineReader.open(args[1]);
         } else {
-            _input = new Scanner(System.in);
+            _input = LineReader.of(System.in);
         }
 
         if (args.length > 2) {
-            _output = getOutput(args[2]);
+            _output = GroupWriter.open(args[2]);
         } else {
-            _output = System.out;
-        }
-    }
-
-    /** Return a Scanner reading from the file named NAME. */
-    private Scanner getInput(String name) {
-        try {
-            return new Scanner(new File(name));
-        } catch (IOException excp) {
-            throw error("could not open %s", name);
-        }
-    }
-
-    /** Return a PrintStream writing to the file named NAME. */
-    private PrintStream getOutput(String name) {
-        try {
-            return new PrintStream(new File(name));
-        } catch (IOException excp) {
-            throw error("could not open %s", name);
+            _output = GroupWriter.standardOutput();
         }
     }
 
     /** Configure an Enigma machine from the contents of configuration
      *  file _config and apply it to the messages in _input, sending the
-     *  results to _output. */
+     *  results to _output.  Closes both when done. */
     private void process() {
-        Machine enigma = readConfig();
-        if (!(_input.hasNextLine())) {
-            throw new EnigmaException("Why are u giving me nothing?");
-        }
-        String line  = _input.nextLine();
-        if (!line.contains("*")) {
-            throw new EnigmaException("Wrong Settings Format");
-        }
-        setUp(enigma, line);
-        ArrayList<String> out = new ArrayList<>();
-        int count = 0;
-        while (_input.hasNextLine()) {
-            if (_input.hasNext("\\*")) {
-                line = _input.nextLine();
-                if (line.equals("")) {
-                    printMessageLine("");
-                    setUp(enigma, _input.nextLine());
-                    break;
-                }
-                setUp(enigma, line);
-                break;
+        try {
+            Machine template = _config.newMachine();
+            if (!(_input.hasNextLine())) {
+                throw new EnigmaException("Why are u giving me nothing?");
+            }
+            String line  = _input.nextLine();
+            if (!line.contains("*")) {
+                throw new EnigmaException("Wrong Settings Format");
             }
-            out.add((_input.nextLine().replace(" ", "")));
-            for (int i = 0; i < out.get(count).length(); i++) {
-                if (!(_alphabet.contains(out.get(count).charAt(i)))) {
-                    throw new EnigmaException("Letter not part of this realm");
+            Machine enigma = configure(template, line);
+            while (_input.hasNextLine()) {
+                if (_input.settingsNext()) {
+                    enigma = configure(template, _input.nextLine());
+                } else {
+                    printMessageLine(enigma);
                 }
             }
-            printMessageLine(enigma.convert(out.get(count)));
-            count++;
-        }
-        while (_input.hasNextLine()) {
-            if (_input.hasNext("\\*")) {
-                line = _input.nextLine();
-                if (line.equals("")) {
-                    printMessageLine("");
-                    setUp(enigma, _input.nextLine());
-                    break;
+        } finally {
+            try {
+                if (_input != null) {
+                    _input.close();
+                }
+            } finally {
+                if (_output != null) {
+                    _output.close();
                 }
-                setUp(enigma, line);
-                break;
             }
-            printMessageLine(enigma.convert(
-                    _input.nextLine().replace("\\s+", "")));
         }
-        while (_input.hasNextLine()) {
-            printMessageLine(enigma.convert(
-                    _input.nextLine().replace("\\s+", "")));
+    }
+
+    /** Return a copy of TEMPLATE set up according to SETTINGS.  Machines
+     *  for the most recently used settings lines are kept in _machines,
+     *  so a repeated line costs only a copy. */
+    private Machine configure(Machine template, String settings) {
+        Machine configured = _machines.get(settings);
+        if (configured == null) {
+            configured = template.copy();
+            setUp(configured, settings);
+            _machines.put(settings, configured);
         }
+        return configured.copy();
     }
 
-    /** Return an Enigma machine configured from the contents of configuration
-     *  file _config. */
-    private Machine readConfig() {
-        try {
-            _alphabet = new Alphabet(_config.next());
-            int numRotors = _config.nextInt();
-            int pawls = _config.nextInt();
-            Collection<Rotor> allRotors = new ArrayList<Rotor>();
-            while (_config.hasNext()) {
-                allRotors.add(readRotor());
+    /** Read the next message line from _input, convert it with M, and
+     *  print the result in groups of five.  The line is converted in
+     *  place unless it is long enough to be converted in chunks on all
+     *  available processors. */
+    private void printMessageLine(Machine M) {
+        int len = _input.readLine();
+        char[] line = _input.buffer();
+        if (len >= PARALLEL_THRESHOLD && _parallel.parallelism() > 1) {
+            if (_converted.length < len) {
+                _converted = new char[len];
             }
-            return new Machine(_alphabet, numRotors, pawls, allRotors);
-        } catch (NoSuchElementException excp) {
-            throw error("configuration file truncated");
+            len = _parallel.convert(M, line, 0, len, _converted, 0);
+            _output.printGrouped(_converted, 0, len);
+        } else {
+            len = M.convert(line, 0, len, line, 0);
+            _output.printGrouped(line, 0, len);
         }
     }
 
-    /** Return a rotor, reading its description from _config. */
-    private Rotor readRotor() {
-        try {
-            String name = _config.next();
-            String mFr = _config.next();
-            char mFr2 = mFr.charAt(0);
-            String notches = mFr.substring(1);
-            String cycles = "";
-            if (_config.hasNext("(\\(\\w+\\)){2,}")) {
-                cycles += _config.next();
-            }
-            while (_config.hasNext("\\(\\w+\\.*\\w*\\)")) {
-                cycles += _config.next();
-            }
-            if (mFr2 == 'M') {
-                return new MovingRotor(name, new Permutation(cycles, _alphabet),
-                        notches);
-            } else if (mFr2 == 'N') {
-                return new FixedRotor(name, new Permutation(cycles, _alphabet));
-            } else {
-                return new Reflector(name, new Permutation(cycles, _alphabet));
+    /** The fields of a settings line. */
+    static final class Settings {
+
+        /** Settings using the rotors named ROTORS (reflector first) at
+         *  rotor settings SETTING, with ring settings RING ("" for the
+         *  default) and plugboard PLUGBOARD (cycles separated by blanks,
+         *  "" for none). */
+        Settings(String[] rotors, String setting, String ring,
+                 String plugboard) {
+            _rotors = rotors;
+            _setting = setting;
+            _ring = ring;
+            _plugboard = plugboard;
+        }
+
+        /** Return the names of the rotors, reflector first. */
+        String[] rotors() {
+            return _rotors.clone();
+        }
+
+        /** Return the rotor settings. */
+        String setting() {
+            return _setting;
+        }
+
+        /** Return the ring settings, or "" for the default. */
+        String ring() {
+            return _ring;
+        }
+
+        /** Return the plugboard in cycle notation, or "" for none. */
+        String plugboard() {
+            return _plugboard;
+        }
+
+        /** Names of the rotors. */
+        private final String[] _rotors;
+        /** Rotor settings. */
+        private final String _setting;
+        /** Ring settings. */
+        private final String _ring;
+        /** Plugboard. */
+        private final String _plugboard;
+    }
+
+    /** Return the fields of SETTINGS, a settings line for a machine with
+     *  NUMROTORS rotor slots, in the format specified in the
+     *  assignment. */
+    static Settings parseSettings(String settings, int numRotors) {
+        String[] tokens = WHITESPACE.split(settings.trim());
+        if (!tokens[0].equals("*")) {
+            throw new EnigmaException("Wrong Settings Format");
+        }
+        if (tokens.length < numRotors + 2) {
+            throw new EnigmaException("Wrong Number of Rotors");
+        }
+        String[] rotors = Arrays.copyOfRange(tokens, 1, numRotors + 1);
+        int k = numRotors + 1;
+        String setting = tokens[k++];
+        String ring = "";
+        if (k < tokens.length && !CYCLE.matcher(tokens[k]).matches()) {
+            ring = tokens[k++];
+        }
+        StringBuilder plugboard = new StringBuilder();
+        while (k < tokens.length && CYCLE.matcher(tokens[k]).matches()) {
+            if (plugboard.length() > 0) {
+                plugboard.append(' ');
             }
-        } catch (NoSuchElementException excp) {
-            throw error("bad rotor description");
+            plugboard.append(tokens[k++]);
         }
+        return new Settings(rotors, setting, ring, plugboard.toString());
     }
 
     /** Set M according to the specification given on SETTINGS,
      *  which must have the format specified in the assignment. */
-    private void setUp(Machine M, String settings) {
-        Scanner settingsS = new Scanner(settings);
-        String[] rotors = new String[M.numRotors()];
-        String setting = "";
-        String plugboard = "";
-        if (settingsS.next().equals("*")) {
-            for (int i = 0; i < M.numRotors(); i++) {
-                rotors[i] = settingsS.next();
-            }
-            if (rotors.length != M.numRotors()) {
-                throw new EnigmaException("Wrong Number of Rotors");
-            }
-            M.insertRotors(rotors);
-            setting += settingsS.next();
-            if (setting.length() != M.numRotors() - 1) {
-                throw new EnigmaException("Wrong Settings Length");
+    static void setUp(Machine M, String settings) {
+        Alphabet alphabet = M.alphabet();
+        int numRotors = M.numRotors();
+        Settings fields = parseSettings(settings, numRotors);
+        M.insertRotors(fields.rotors());
+        String setting = fields.setting();
+        if (setting.length() != numRotors - 1) {
+            throw new EnigmaException("Wrong Settings Length");
+        }
+        for (int i = 0; i < setting.length(); i++) {
+            if (!(alphabet.contains(setting.charAt(i)))) {
+                throw new EnigmaException("You done given "
+                        + "me the wrong letter boi");
             }
-            for (int i = 0; i < setting.length(); i++) {
-                if (!(_alphabet.contains(setting.charAt(i)))) {
-                    throw new EnigmaException("You done given "
-                            + "me the wrong letter boi");
-                }
+        }
+        String ring = fields.ring();
+        if (!ring.isEmpty()) {
+            if (ring.length() != numRotors - 1) {
+                throw new EnigmaException("Wrong Ring Length");
             }
-            M.setRotors(setting);
-            boolean hasNext = settingsS.hasNext("\\(\\w+\\)");
-            String ring = "";
-            if (!hasNext && settingsS.hasNext()) {
-                String line = settingsS.next();
-                if (!line.isEmpty()) {
-                    ring = line;
+            for (int i = 0; i < ring.length(); i++) {
+                if (!alphabet.contains(ring.charAt(i))) {
+                    throw new EnigmaException("Wrong Ring Letter");
                 }
             }
-            if (!ring.isEmpty()) {
-                M.setRing(ring);
-            }
-            boolean hasNext2 = settingsS.hasNext("\\(\\w+\\)");
-            while (hasNext2) {
-                plugboard += settingsS.next();
-                hasNext2 = settingsS.hasNext("\\(\\w+\\)");
-            }
-            M.setPlugboard(new Permutation(plugboard, _alphabet));
         }
+        M.setRotors(setting);
+        if (!ring.isEmpty()) {
+            M.setRing(ring);
+        }
+        M.setPlugboard(new Permutation(fields.plugboard(), alphabet));
     }
 
-    /** Print MSG in groups of five (except that the last group may
-     *  have fewer letters). */
-    private void printMessageLine(String msg) {
-        int count = 0;
-        for (int i = 0; i < msg.length(); i++) {
-            if (i % 5 == 0 && i != 0) {
-                msg = msg.substring(0, i + count) + " "
-                        + msg.substring(i + count, msg.length());
-                String cmsg = msg.substring(i + count, msg.length());
-                if (cmsg.length() <= 5) {
-                    break;
-                }
-                count++;
-            }
-        }
-        _output.println(msg.trim());
+    /** Separator between the fields of a settings line. */
+    static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    /** Return true iff CH may be plugged, that is, may appear in a
+     *  plugboard cycle of a settings line. */
+    static boolean isPlugLetter(char ch) {
+        return PLUG_LETTER.matcher(String.valueOf(ch)).matches();
     }
 
-    /** Alphabet used in this machine. */
-    private Alphabet _alphabet;
+    /** A character that may be plugged. */
+    private static final Pattern PLUG_LETTER = Pattern.compile("\\w");
+
+    /** A single plugboard cycle in a settings line, made of characters
+     *  that PLUG_LETTER matches. */
+    private static final Pattern CYCLE = Pattern.compile("\\(\\w+\\)");
+
+    /** Maximum number of configured machines kept in _machines. */
+    private static final int MACHINE_CACHE_SIZE = 64;
+
+    /** Load factor of _machines. */
+    private static final float LOAD = 0.75f;
+
+    /** Configured machines by settings line, least recently used first. */
+    private final LinkedHashMap<String, Machine> _machines =
+        new LinkedHashMap<String, Machine>(MACHINE_CACHE_SIZE, LOAD, true) {
+            @Override
+            protected boolean removeEldestEntry(
+                Map.Entry<String, Machine> eldest) {
+                return size() > MACHINE_CACHE_SIZE;
+            }
+        };
+
+    /** Length of the shortest message converted in parallel. */
+    private static final int PARALLEL_THRESHOLD = 1 << 20;
+
+    /** Converter for long messages. */
+    private final ParallelConverter _parallel = new ParallelConverter();
+
+    /** Buffer for the output of parallel conversions. */
+    private char[] _converted = new char[0];
 
     /** Source of input messages. */
-    private Scanner _input;
+    private LineReader _input;
 
-    /** Source of machine configuration. */
-    private Scanner _config;
+    /** Machine configuration. */
+    private Configuration _config;
 
     /** File for encoded/decoded messages. */
-    private PrintStream _output;
+    private GroupWriter _output;
 }
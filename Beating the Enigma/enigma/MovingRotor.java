@@ -14,6 +14,13 @@ class MovingRotor extends Rotor {
         super(name, perm);
         _notches = notches;
         _permutation = perm;
+        _notchTable = new boolean[perm.size()];
+        for (int i = 0; i < notches.length(); i++) {
+            int posn = perm.alphabet().toInt(notches.charAt(i));
+            if (posn >= 0) {
+                _notchTable[posn] = true;
+            }
+        }
     }
     @Override
     boolean rotates() {
@@ -27,14 +34,8 @@ class MovingRotor extends Rotor {
     }
 
     @Override
-    boolean atNotch() {
-        for (int i = 0; i < _notches.length(); i++) {
-            if (_notches.charAt(i)
-                    == _permutation.alphabet().toChar(this.setting())) {
-                return true;
-            }
-        }
-        return false;
+    boolean atNotch(int posn) {
+        return _notchTable[posn];
     }
 
 
@@ -47,4 +48,6 @@ class MovingRotor extends Rotor {
     private String _notches;
     /** Permutation for the Moving Rotor. */
     private Permutation _permutation;
+    /** True at each setting that is one of my notches. */
+    private boolean[] _notchTable;
 }
@@ -71,4 +71,31 @@ public class MovingRotorTest {
         checkRotor("Rotor I set", UPPER_STRING, NAVALZ_MAP.get("I"));
     }
 
+    @Test
+    public void checkShifts() {
+        StringBuilder wide = new StringBuilder();
+        for (int i = 0; i < Rotor.MAX_TABLED + 44; i += 1) {
+            wide.append((char) ('\u0100' + i));
+        }
+        Alphabet large = new Alphabet(wide.toString());
+        Rotor[] rotors = {
+            new MovingRotor("I", new Permutation(NAVALA.get("I"), UPPER), ""),
+            new FixedRotor("W", new Permutation(
+                "(" + wide.substring(3, 40) + ")", large)),
+        };
+        for (Rotor r : rotors) {
+            int n = r.size();
+            for (int shift = 0; shift < n; shift += 1) {
+                for (int p = 0; p < n; p += 1) {
+                    int e = Math.floorMod(
+                        r.permutation().permute((p + shift) % n) - shift, n);
+                    assertEquals(msg(r.name(), "%d at shift %d", p, shift),
+                                 e, r.convertForward(p, shift));
+                    assertEquals(msg(r.name(), "%d at shift %d", e, shift),
+                                 p, r.convertBackward(e, shift));
+                }
+            }
+        }
+    }
+
 }
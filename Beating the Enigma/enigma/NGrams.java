@@ -0,0 +1,172 @@
+package enigma;
+
+import static enigma.EnigmaException.*;
+
+/** A table of the log probabilities of the n-grams (strings of N
+ *  characters) of a language over some alphabet, used to score trial
+ *  decryptions.  The table is a flat float array indexed by reading an
+ *  n-gram as a number in base alphabet size, first character most
+ *  significant.
+ *  @author
+ */
+final class NGrams {
+
+    /** A model of N-grams over ALPHABET whose base-10 log probabilities
+     *  are LOGPROBS, indexed as described above. */
+    NGrams(Alphabet alphabet, int n, float[] logProbs) {
+        if (n <= 0 || logProbs.length != tableSize(alphabet.size(), n)) {
+            throw error("n-gram table has the wrong size");
+        }
+        _alphabet = alphabet;
+        _n = n;
+        _logProbs = logProbs;
+        _high = logProbs.length / alphabet.size();
+    }
+
+    /** Return the model of N-grams over ALPHABET given by COUNTS, where
+     *  COUNTS[g] is the number of times n-gram g was seen.  N-grams never
+     *  seen get a small nonzero probability. */
+    static NGrams fromCounts(Alphabet alphabet, int n, long[] counts) {
+        double total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        total = Math.max(total, 1);
+        float floor = (float) Math.log10(UNSEEN / total);
+        float[] logProbs = new float[counts.length];
+        for (int g = 0; g < counts.length; g++) {
+            logProbs[g] = counts[g] == 0 ? floor
+                : (float) Math.log10(counts[g] / total);
+        }
+        return new NGrams(alphabet, n, logProbs);
+    }
+
+    /** Return the model of N-grams over ALPHABET seen in TEXT, skipping
+     *  characters of TEXT that are not in ALPHABET. */
+    static NGrams train(Alphabet alphabet, int n, CharSequence text) {
+        int size = alphabet.size();
+        long[] counts = new long[tableSize(size, n)];
+        int high = counts.length / size;
+        int g = 0;
+        int seen = 0;
+        for (int i = 0; i < text.length(); i++) {
+            int c = alphabet.toInt(text.charAt(i));
+            if (c >= 0) {
+                g = (g % high) * size + c;
+                seen += 1;
+                if (seen >= n) {
+                    counts[g] += 1;
+                }
+            }
+        }
+        return fromCounts(alphabet, n, counts);
+    }
+
+    /** Return the model over ALPHABET read from the file named NAME, each
+     *  line of which holds an n-gram and the number of times it was seen,
+     *  separated by whitespace.  All n-grams must have the same length. */
+    static NGrams read(String name, Alphabet alphabet) {
+        try (LineReader input = LineReader.open(name)) {
+            long[] counts = null;
+            int n = 0;
+            while (input.hasNextLine()) {
+                String line = input.nextLine().trim();
+                if (line.isEmpty()) {
+                    continue;
+                }
+                String[] fields = Main.WHITESPACE.split(line);
+                if (counts == null) {
+                    n = fields[0].length();
+                    counts = new long[tableSize(alphabet.size(), n)];
+                }
+                if (fields.length != 2 || fields[0].length() != n) {
+                    throw error("bad n-gram line: %s", line);
+                }
+                try {
+                    counts[index(alphabet, fields[0])] +=
+                        Long.parseLong(fields[1]);
+                } catch (NumberFormatException excp) {
+                    throw error("bad n-gram count: %s", fields[1]);
+                }
+            }
+            if (counts == null) {
+                throw error("no n-grams in %s", name);
+            }
+            return fromCounts(alphabet, n, counts);
+        }
+    }
+
+    /** Return the number of N-grams over an alphabet of SIZE
+     *  characters. */
+    private static int tableSize(int size, int n) {
+        long result = 1;
+        for (int i = 0; i < n; i++) {
+            result *= size;
+            if (result > MAX_TABLE) {
+                throw error("n-gram table too large");
+            }
+        }
+        return (int) result;
+    }
+
+    /** Return the table index of GRAM, whose characters must be in
+     *  ALPHABET. */
+    private static int index(Alphabet alphabet, String gram) {
+        int g = 0;
+        for (int i = 0; i < gram.length(); i++) {
+            int c = alphabet.toInt(gram.charAt(i));
+            if (c < 0) {
+                throw error("character %c not in alphabet", gram.charAt(i));
+            }
+            g = g * alphabet.size() + c;
+        }
+        return g;
+    }
+
+    /** Return my alphabet. */
+    Alphabet alphabet() {
+        return _alphabet;
+    }
+
+    /** Return the length of my n-grams. */
+    int order() {
+        return _n;
+    }
+
+    /** Return the log probability of N-gram GRAM, given as a table
+     *  index. */
+    float logProb(int gram) {
+        return _logProbs[gram];
+    }
+
+    /** Return the sum of the log probabilities of all the n-grams in the
+     *  first LEN characters of TEXT, given as alphabet indices. */
+    double score(int[] text, int len) {
+        int size = _alphabet.size();
+        double sum = 0;
+        int g = 0;
+        for (int i = 0; i < len; i++) {
+            g = (g % _high) * size + text[i];
+            if (i >= _n - 1) {
+                sum += _logProbs[g];
+            }
+        }
+        return sum;
+    }
+
+    /** Largest number of entries in a table. */
+    private static final long MAX_TABLE = 1 << 26;
+
+    /** The count given to n-grams never seen. */
+    private static final double UNSEEN = 0.01;
+
+    /** My alphabet. */
+    private final Alphabet _alphabet;
+    /** The length of my n-grams. */
+    private final int _n;
+    /** Log probability of each n-gram. */
+    private final float[] _logProbs;
+    /** The number of (n-1)-grams, by which an index is reduced before
+     *  shifting in another character. */
+    private final int _high;
+}
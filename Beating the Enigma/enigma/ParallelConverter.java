@@ -0,0 +1,191 @@
+package enigma;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import static enigma.EnigmaException.*;
+
+/** Converts long messages by splitting them into chunks and converting
+ *  the chunks at once on the threads of a ForkJoinPool.  Each chunk gets
+ *  its own copy of the machine, sought forward to the settings it would
+ *  have reached by the start of that chunk, so the output is exactly what
+ *  Machine.convert would produce.
+ *  @author
+ */
+class ParallelConverter {
+
+    /** A converter that runs on POOL, cutting messages into chunks of
+     *  about CHUNKSIZE characters. */
+    ParallelConverter(ForkJoinPool pool, int chunkSize) {
+        if (chunkSize <= 0) {
+            throw error("chunk size must be positive");
+        }
+        _pool = pool;
+        _chunkSize = chunkSize;
+    }
+
+    /** A converter that runs on the common pool with chunks of the
+     *  default size. */
+    ParallelConverter() {
+        this(ForkJoinPool.commonPool(), DEFAULT_CHUNK);
+    }
+
+    /** Return the number of threads I use. */
+    int parallelism() {
+        return _pool.getParallelism();
+    }
+
+    /** Return the encoding/decoding of MSG by MACHINE, updating the
+     *  state of MACHINE accordingly. */
+    String convert(Machine machine, String msg) {
+        char[] in = msg.toCharArray();
+        char[] out = new char[in.length];
+        int len = convert(machine, in, 0, in.length, out, 0);
+        return new String(out, 0, len);
+    }
+
+    /** As for MACHINE.convert(IN, OFF, LEN, OUT, OUTOFF), except that IN
+     *  and OUT must not overlap.  No output is produced if the input
+     *  contains a character outside MACHINE's alphabet.  Returns the
+     *  number of characters stored. */
+    int convert(Machine machine, char[] in, int off, int len,
+                char[] out, int outOff) {
+        int numChunks = (int) ((len + (long) _chunkSize - 1) / _chunkSize);
+        int[] starts = new int[numChunks + 1];
+        for (int k = 0; k < numChunks; k++) {
+            starts[k] = off + k * _chunkSize;
+        }
+        starts[numChunks] = off + len;
+        int[] counts = new int[numChunks];
+        _pool.invoke(new CountTask(machine.alphabet(), in, starts, counts,
+                                   0, numChunks));
+        Machine[] machines = new Machine[numChunks];
+        int[] outStarts = new int[numChunks + 1];
+        Machine position = machine.copy();
+        for (int k = 0; k < numChunks; k++) {
+            machines[k] = position.copy();
+            position.seek(counts[k]);
+            outStarts[k + 1] = outStarts[k] + counts[k];
+        }
+        _pool.invoke(new ConvertTask(machines, in, starts, out, outOff,
+                                     outStarts, 0, numChunks));
+        machine.seek(outStarts[numChunks]);
+        return outStarts[numChunks];
+    }
+
+    /** Counts the non-blank characters of each of a range of chunks,
+     *  checking that they are in the alphabet. */
+    private static class CountTask extends RecursiveAction {
+
+        /** A task that stores the number of non-blank characters of IN
+         *  between STARTS[k] and STARTS[k + 1] in COUNTS[k], for
+         *  LO <= k < HI, checking them against ALPHABET. */
+        CountTask(Alphabet alphabet, char[] in, int[] starts, int[] counts,
+                  int lo, int hi) {
+            _alphabet = alphabet;
+            _in = in;
+            _starts = starts;
+            _counts = counts;
+            _lo = lo;
+            _hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (_hi - _lo > 1) {
+                int mid = (_lo + _hi) >>> 1;
+                invokeAll(new CountTask(_alphabet, _in, _starts, _counts,
+                                        _lo, mid),
+                          new CountTask(_alphabet, _in, _starts, _counts,
+                                        mid, _hi));
+                return;
+            }
+            for (int k = _lo; k < _hi; k++) {
+                int count = 0;
+                for (int i = _starts[k]; i < _starts[k + 1]; i++) {
+                    char ch = _in[i];
+                    if (ch == ' ') {
+                        continue;
+                    }
+                    if (!_alphabet.contains(ch)) {
+                        throw error("character %c not in alphabet", ch);
+                    }
+                    count++;
+                }
+                _counts[k] = count;
+            }
+        }
+
+        /** The alphabet to check against. */
+        private final Alphabet _alphabet;
+        /** The input characters. */
+        private final char[] _in;
+        /** The start of each chunk in _IN. */
+        private final int[] _starts;
+        /** Where the counts are stored. */
+        private final int[] _counts;
+        /** The range of chunks I count. */
+        private final int _lo, _hi;
+    }
+
+    /** Converts a range of chunks, each with its own machine. */
+    private static class ConvertTask extends RecursiveAction {
+
+        /** A task that converts the characters of IN between STARTS[k]
+         *  and STARTS[k + 1] with MACHINES[k], storing the result in OUT
+         *  starting at OUTOFF + OUTSTARTS[k], for LO <= k < HI. */
+        ConvertTask(Machine[] machines, char[] in, int[] starts,
+                    char[] out, int outOff, int[] outStarts,
+                    int lo, int hi) {
+            _machines = machines;
+            _in = in;
+            _starts = starts;
+            _out = out;
+            _outOff = outOff;
+            _outStarts = outStarts;
+            _lo = lo;
+            _hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (_hi - _lo > 1) {
+                int mid = (_lo + _hi) >>> 1;
+                invokeAll(new ConvertTask(_machines, _in, _starts, _out,
+                                          _outOff, _outStarts, _lo, mid),
+                          new ConvertTask(_machines, _in, _starts, _out,
+                                          _outOff, _outStarts, mid, _hi));
+                return;
+            }
+            for (int k = _lo; k < _hi; k++) {
+                _machines[k].convert(_in, _starts[k],
+                                     _starts[k + 1] - _starts[k],
+                                     _out, _outOff + _outStarts[k]);
+            }
+        }
+
+        /** The machine for each chunk, at its starting settings. */
+        private final Machine[] _machines;
+        /** The input characters. */
+        private final char[] _in;
+        /** The start of each chunk in _IN. */
+        private final int[] _starts;
+        /** The output array. */
+        private final char[] _out;
+        /** Where output starts in _OUT. */
+        private final int _outOff;
+        /** The start of each chunk's output, relative to _OUTOFF. */
+        private final int[] _outStarts;
+        /** The range of chunks I convert. */
+        private final int _lo, _hi;
+    }
+
+    /** Default number of characters per chunk. */
+    static final int DEFAULT_CHUNK = 1 << 16;
+
+    /** The pool I run on. */
+    private final ForkJoinPool _pool;
+    /** The number of characters in each chunk. */
+    private final int _chunkSize;
+
+}
@@ -1,5 +1,9 @@
 package enigma;
 
+import java.util.Arrays;
+
+import static enigma.EnigmaException.*;
+
 /** Represents a permutation of a range of integers starting at 0 corresponding
  *  to the characters of an alphabet.
  *  @author Deep Dayaramani
@@ -13,18 +17,70 @@ class Permutation {
      *  Whitespace is ignored. */
     Permutation(String cycles, Alphabet alphabet) {
         _alphabet = alphabet;
+        _forward = new int[alphabet.size()];
+        _inverse = new int[alphabet.size()];
+        for (int i = 0; i < _forward.length; i++) {
+            _forward[i] = i;
+            _inverse[i] = i;
+        }
         String toReplace = cycles.replace(")", " ");
         toReplace = toReplace.replace("(", "");
-        _cycles = toReplace.split(" +");
+        for (String cycle : toReplace.split(" +")) {
+            addCycle(cycle);
+        }
+        compileChars();
+    }
+
+    /** Set this Permutation to the one taking each index i of ALPHABET to
+     *  FORWARD[i].  FORWARD must be a permutation of those indices. */
+    Permutation(int[] forward, Alphabet alphabet) {
+        _alphabet = alphabet;
+        if (forward.length != alphabet.size()) {
+            throw error("permutation table has the wrong size");
+        }
+        _forward = forward.clone();
+        _inverse = new int[_forward.length];
+        Arrays.fill(_inverse, -1);
+        for (int i = 0; i < _forward.length; i++) {
+            int to = _forward[i];
+            if (to < 0 || to >= _forward.length || _inverse[to] >= 0) {
+                throw error("table is not a permutation");
+            }
+            _inverse[to] = i;
+        }
+        compileChars();
     }
 
     /** Add the cycle c0->c1->...->cm->c0 to the permutation, where CYCLE is
      *  c0c1...cm. */
     private void addCycle(String cycle) {
-        String [] newCycles = new String[_cycles.length + 1];
-        System.arraycopy(_cycles, 0, newCycles, 0, _cycles.length);
-        newCycles[_cycles.length + 1] = cycle;
-        _cycles = newCycles;
+        int len = cycle.length();
+        for (int j = 0; j < len; j++) {
+            int from = toIndex(cycle.charAt(j));
+            int to = toIndex(cycle.charAt(j + 1 == len ? 0 : j + 1));
+            _forward[from] = to;
+            _inverse[to] = from;
+        }
+    }
+
+    /** Return the index of cycle character CH, which must be in my
+     *  alphabet. */
+    private int toIndex(char ch) {
+        int index = _alphabet.toInt(ch);
+        if (index < 0) {
+            throw error("character %c in cycle is not in alphabet", ch);
+        }
+        return index;
+    }
+
+    /** Fill in the character-level tables from _forward and _inverse. */
+    private void compileChars() {
+        _forwardChars = new char[_forward.length];
+        _inverseChars = new char[_inverse.length];
+        for (int i = 0; i < _forward.length; i++) {
+            _forwardChars[i] = _alphabet.toChar(_forward[i]);
+            _inverseChars[i] = _alphabet.toChar(_inverse[i]);
+        }
     }
 
     /** Return the value of P modulo the size of this permutation. */
@@ -49,45 +105,25 @@ class Permutation {
 
     /** Returns the size of the alphabet I permute. */
     int size() {
-        return _alphabet.size();
+        return _forward.length;
     }
 
     /** Return the result of applying this permutation to P modulo the
      *  alphabet size. */
     int permute(int p) {
-        char toPermute = _alphabet.toChar(wrap(p));
-        int permutedInt;
-        for (int i = 0; i < _cycles.length; i++) {
-            if (_cycles[i].indexOf(toPermute) >= 0) {
-                for (int j = 0; j < _cycles[i].length(); j++) {
-                    if (_cycles[i].charAt(j) == toPermute) {
-                        permutedInt = _alphabet.toInt(_cycles[i].charAt(mod(
-                                j + 1, _cycles[i].length())));
-                        return permutedInt;
-                    }
-                }
-            }
+        if (p < 0 || p >= _forward.length) {
+            p = wrap(p);
         }
-        return p;
+        return _forward[p];
     }
 
     /** Return the result of applying the inverse of this permutation
      *  to  C modulo the alphabet size. */
     int invert(int c) {
-        char toInvert = _alphabet.toChar(wrap(c));
-        int invertedInt;
-        for (int i = 0; i < _cycles.length; i++) {
-            if (_cycles[i].indexOf(toInvert) >= 0) {
-                for (int j = 0; j < _cycles[i].length(); j++) {
-                    if (_cycles[i].charAt(j) == toInvert) {
-                        invertedInt = _alphabet.toInt(_cycles[i].charAt(
-                                mod(j - 1, _cycles[i].length())));
-                        return invertedInt;
-                    }
-                }
-            }
+        if (c < 0 || c >= _inverse.length) {
+            c = wrap(c);
         }
-        return c;
+        return _inverse[c];
     }
 
     /** Return the result of applying this permutation to the index of P
@@ -97,7 +133,7 @@ class Permutation {
         if (permuteIndex == -1) {
             throw EnigmaException.error("OOO U did an oopsie");
         }
-        return _alphabet.toChar(permute(permuteIndex));
+        return _forwardChars[permuteIndex];
     }
 
     /** Return the result of applying the inverse of this permutation to C. */
@@ -106,7 +142,7 @@ class Permutation {
         if (invertIndex == -1) {
             throw EnigmaException.error("OOO U did an oopsie");
         }
-        return _alphabet.toChar(invert(invertIndex));
+        return _inverseChars[invertIndex];
 
     }
     /** Return the alphabet used to initialize this Permutation. */
@@ -117,19 +153,23 @@ class Permutation {
     /** Return true iff this permutation is a derangement (i.e., a
      *  permutation for which no value maps to itself). */
     boolean derangement() {
-        int mapItself = 0;
-        for (int i = 0; i < _cycles.length; i++) {
-            mapItself += _cycles[i].length();
-        }
-        if (mapItself < _alphabet.size()) {
-            return true;
+        for (int i = 0; i < _forward.length; i++) {
+            if (_forward[i] == i) {
+                return false;
+            }
         }
-        return false;
+        return true;
     }
 
     /** Alphabet of this permutation. */
     private Alphabet _alphabet;
-    /** Cycles of this permutation. */
-    private String[] _cycles;
+    /** Image of each index under this permutation. */
+    private int[] _forward;
+    /** Image of each index under the inverse of this permutation. */
+    private int[] _inverse;
+    /** Image of each index under this permutation, as a character. */
+    private char[] _forwardChars;
+    /** Image of each index under the inverse, as a character. */
+    private char[] _inverseChars;
 
 }
@@ -120,5 +120,14 @@ public class PermutationTest {
         assertEquals(3, p.invert(-3));
         assertEquals(1, p.invert(-4));
     }
+    @Test
+    public void testDerangement() {
+        Alphabet alpha = getNewAlphabet("ABCD");
+        assertTrue(getNewPermutation("(AB) (CD)", alpha).derangement());
+        assertTrue(getNewPermutation("(ACBD)", alpha).derangement());
+        assertFalse(getNewPermutation("(ABC)", alpha).derangement());
+        assertFalse(getNewPermutation("(AB) (C) (D)", alpha).derangement());
+        assertFalse(getNewPermutation("", alpha).derangement());
+    }
 
 }
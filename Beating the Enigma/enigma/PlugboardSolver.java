@@ -0,0 +1,329 @@
+package enigma;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import static enigma.EnigmaException.*;
+
+/** Recovers the plugboard of a message whose rotor order, settings and
+ *  rings are known (say, from a CoincidenceSearch) by hill-climbing:
+ *  starting from some plugboard, repeatedly make any change of one plug
+ *  pair that improves the n-gram score of the decryption, until no such
+ *  change helps.  Several climbs from random starting plugboards run at
+ *  once on a ForkJoinPool, and the best result wins.
+ *
+ *  The rotors do not depend on the plugboard, so the permutation applied
+ *  by the rotors and reflector at each key press is tabulated once.  A
+ *  trial decryption with plugboard S of ciphertext character c at key
+ *  press t is then just S(P_t(S(c))), three table lookups.
+ *
+ *  Only characters that a settings line can plug (see
+ *  Main.isPlugLetter) are plugged, so that the key found can be read
+ *  back by Main whatever the alphabet.
+ *  @author
+ */
+class PlugboardSolver {
+
+    /** A solver for machines made from CONFIG that scores decryptions
+     *  with MODEL and runs on POOL. */
+    PlugboardSolver(Configuration config, NGrams model, ForkJoinPool pool) {
+        if (model.alphabet().size() != config.alphabet().size()) {
+            throw error("n-gram model is for a different alphabet");
+        }
+        _config = config;
+        _model = model;
+        _pool = pool;
+        _plugs = plugLetters(config.alphabet());
+        _maxPairs = _plugs.length / 2;
+    }
+
+    /** A solver for machines made from CONFIG that scores decryptions
+     *  with MODEL and runs on the common pool. */
+    PlugboardSolver(Configuration config, NGrams model) {
+        this(config, model, ForkJoinPool.commonPool());
+    }
+
+    /** Climb from RESTARTS starting plugboards (the first one empty). */
+    void setRestarts(int restarts) {
+        if (restarts <= 0) {
+            throw error("number of restarts must be positive");
+        }
+        _restarts = restarts;
+    }
+
+    /** Allow at most MAXPAIRS plug pairs. */
+    void setMaxPairs(int maxPairs) {
+        if (maxPairs < 0) {
+            throw error("number of plug pairs must not be negative");
+        }
+        _maxPairs = maxPairs;
+    }
+
+    /** Seed the random starting plugboards with SEED. */
+    void setSeed(long seed) {
+        _seed = seed;
+    }
+
+    /** Return KEY with the plugboard that gives the best-scoring
+     *  decryption of CIPHERTEXT, scored by the sum of the log
+     *  probabilities of its n-grams.  Any plugboard of KEY is ignored.
+     *  Whitespace in CIPHERTEXT is ignored. */
+    Candidate solve(Candidate key, String ciphertext) {
+        Alphabet alphabet = _config.alphabet();
+        int size = alphabet.size();
+        int[] cipher = new int[ciphertext.length()];
+        int len = 0;
+        for (int i = 0; i < ciphertext.length(); i++) {
+            char ch = ciphertext.charAt(i);
+            if (Character.isWhitespace(ch)) {
+                continue;
+            }
+            cipher[len] = alphabet.toInt(ch);
+            if (cipher[len] < 0) {
+                throw error("character %c not in alphabet", ch);
+            }
+            len += 1;
+        }
+        Machine machine = key.withPlugboard("", 0.0).machine(_config);
+        long cells = (long) len * size;
+        if (cells > MAX_TABLE) {
+            throw error("ciphertext too long: %d letters", len);
+        }
+        int[] presses = new int[(int) cells];
+        machine.pressTables(len, presses);
+        Climb best = _pool.invoke(new ClimbTask(this, cipher, len, presses,
+                                                0, _restarts));
+        return key.withPlugboard(cycles(best._plug, alphabet), best._score);
+    }
+
+    /** Return the indices of the characters of ALPHABET that may be
+     *  plugged, in increasing order. */
+    static int[] plugLetters(Alphabet alphabet) {
+        int[] plugs = new int[alphabet.size()];
+        int n = 0;
+        for (int a = 0; a < alphabet.size(); a++) {
+            if (Main.isPlugLetter(alphabet.toChar(a))) {
+                plugs[n++] = a;
+            }
+        }
+        return Arrays.copyOf(plugs, n);
+    }
+
+    /** Return the plugboard PLUG, an involution on the indices of
+     *  ALPHABET, in cycle notation, with each pair listed in order of its
+     *  smaller member. */
+    static String cycles(int[] plug, Alphabet alphabet) {
+        StringBuilder result = new StringBuilder();
+        for (int a = 0; a < plug.length; a++) {
+            if (plug[a] > a) {
+                if (result.length() > 0) {
+                    result.append(' ');
+                }
+                result.append('(').append(alphabet.toChar(a))
+                    .append(alphabet.toChar(plug[a])).append(')');
+            }
+        }
+        return result.toString();
+    }
+
+    /** Return the score of the decryption of the first LEN characters of
+     *  CIPHER with plugboard PLUG, where PRESSES tabulates the rotors at
+     *  each key press as for Machine.pressTables.  TEXT receives the
+     *  decryption. */
+    private double score(int[] cipher, int len, int[] presses, int[] plug,
+                         int[] text) {
+        int size = plug.length;
+        for (int t = 0; t < len; t++) {
+            text[t] = plug[presses[t * size + plug[cipher[t]]]];
+        }
+        return _model.score(text, len);
+    }
+
+    /** Return the result of one climb, number RESTART, for the first LEN
+     *  characters of CIPHER, where PRESSES tabulates the rotors at each
+     *  key press. */
+    private Climb climb(int restart, int[] cipher, int len, int[] presses) {
+        int size = _config.alphabet().size();
+        int[] plug = new int[size];
+        int[] trial = new int[size];
+        int[] text = new int[len];
+        for (int a = 0; a < size; a++) {
+            plug[a] = a;
+        }
+        if (restart > 0) {
+            scramble(plug, new Random(_seed + restart));
+        }
+        double score = score(cipher, len, presses, plug, text);
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            for (int i = 0; i < _plugs.length; i++) {
+                for (int j = i + 1; j < _plugs.length; j++) {
+                    int a = _plugs[i], b = _plugs[j];
+                    System.arraycopy(plug, 0, trial, 0, size);
+                    if (!swap(trial, a, b)) {
+                        continue;
+                    }
+                    double next = score(cipher, len, presses, trial, text);
+                    if (next > score) {
+                        int[] tmp = plug;
+                        plug = trial;
+                        trial = tmp;
+                        score = next;
+                        improved = true;
+                    }
+                }
+            }
+        }
+        return new Climb(plug, score);
+    }
+
+    /** Set the identity plugboard PLUG to a random one with at most
+     *  _maxPairs pairs of _plugs, chosen with RANDOM. */
+    private void scramble(int[] plug, Random random) {
+        int n = _plugs.length;
+        if (n < 2) {
+            return;
+        }
+        int pairs = random.nextInt(_maxPairs + 1);
+        for (int k = 0; k < pairs; k++) {
+            int a = _plugs[random.nextInt(n)];
+            int b = _plugs[random.nextInt(n)];
+            if (a != b && plug[a] == a && plug[b] == b) {
+                plug[a] = b;
+                plug[b] = a;
+            }
+        }
+    }
+
+    /** Change plugboard PLUG by plugging A and B together, unplugging
+     *  whatever they were connected to, or by unplugging them if they are
+     *  already together.  Return false, leaving PLUG in an unspecified
+     *  state, if the result would have more than _maxPairs pairs. */
+    private boolean swap(int[] plug, int a, int b) {
+        if (plug[a] == b) {
+            plug[a] = a;
+            plug[b] = b;
+            return true;
+        }
+        plug[plug[a]] = plug[a];
+        plug[plug[b]] = plug[b];
+        plug[a] = b;
+        plug[b] = a;
+        int pairs = 0;
+        for (int c = 0; c < plug.length; c++) {
+            if (plug[c] > c) {
+                pairs += 1;
+            }
+        }
+        return pairs <= _maxPairs;
+    }
+
+    /** The outcome of one climb. */
+    private static class Climb {
+        /** The outcome PLUG, whose decryption scored SCORE. */
+        Climb(int[] plug, double score) {
+            _plug = plug;
+            _score = score;
+        }
+
+        /** The plugboard reached. */
+        private final int[] _plug;
+        /** Its score. */
+        private final double _score;
+    }
+
+    /** Runs a range of climbs, yielding the best outcome. */
+    private static class ClimbTask extends RecursiveTask<Climb> {
+
+        /** A task that runs climbs LO <= r < HI of SOLVER on the first LEN
+         *  characters of CIPHER, where PRESSES tabulates the rotors. */
+        ClimbTask(PlugboardSolver solver, int[] cipher, int len,
+                  int[] presses, int lo, int hi) {
+            _solver = solver;
+            _cipher = cipher;
+            _len = len;
+            _presses = presses;
+            _lo = lo;
+            _hi = hi;
+        }
+
+        @Override
+        protected Climb compute() {
+            if (_hi - _lo > 1) {
+                int mid = (_lo + _hi) >>> 1;
+                ClimbTask left = new ClimbTask(_solver, _cipher, _len,
+                                               _presses, _lo, mid);
+                left.fork();
+                Climb right = new ClimbTask(_solver, _cipher, _len,
+                                            _presses, mid, _hi).compute();
+                Climb leftBest = left.join();
+                return leftBest._score >= right._score ? leftBest : right;
+            }
+            return _solver.climb(_lo, _cipher, _len, _presses);
+        }
+
+        /** The solver I am part of. */
+        private final PlugboardSolver _solver;
+        /** The ciphertext, as alphabet indices. */
+        private final int[] _cipher;
+        /** The length of the ciphertext. */
+        private final int _len;
+        /** The rotor permutation at each key press. */
+        private final int[] _presses;
+        /** The range of climbs I run. */
+        private final int _lo, _hi;
+    }
+
+    /** Find the plugboard of a message, as specified by ARGS, which are
+     *  CONFIG NGRAMS KEY [INPUT].  CONFIG names a configuration file,
+     *  NGRAMS a file of n-gram counts as for NGrams.read, KEY is a
+     *  settings line giving the rotors, and INPUT names a file holding
+     *  the ciphertext (by default, the standard input).  Prints KEY with
+     *  the plugboard found. */
+    public static void main(String... args) {
+        try {
+            if (args.length < 3 || args.length > 4) {
+                throw error("usage: CONFIG NGRAMS KEY [INPUT]");
+            }
+            Configuration config = Configuration.read(args[0]);
+            NGrams model = NGrams.read(args[1], config.alphabet());
+            Candidate key = Candidate.parse(args[2], config.numRotors());
+            StringBuilder text = new StringBuilder();
+            try (LineReader input = args.length > 3
+                 ? LineReader.open(args[3]) : LineReader.of(System.in)) {
+                while (input.hasNextLine()) {
+                    text.append(input.nextLine()).append('\n');
+                }
+            }
+            PlugboardSolver solver = new PlugboardSolver(config, model);
+            System.out.println(solver.solve(key, text.toString()));
+            return;
+        } catch (EnigmaException excp) {
+            System.err.printf("Error: %s%n", excp.getMessage());
+        }
+        System.exit(1);
+    }
+
+    /** Default number of climbs. */
+    static final int DEFAULT_RESTARTS = 16;
+    /** Largest number of entries in the table of key presses. */
+    private static final int MAX_TABLE = Integer.MAX_VALUE - 8;
+
+    /** The configuration of the machine solved. */
+    private final Configuration _config;
+    /** The model scoring decryptions. */
+    private final NGrams _model;
+    /** The pool I run on. */
+    private final ForkJoinPool _pool;
+    /** Indices of the characters that may be plugged. */
+    private final int[] _plugs;
+    /** Number of climbs. */
+    private int _restarts = DEFAULT_RESTARTS;
+    /** Largest number of plug pairs allowed. */
+    private int _maxPairs;
+    /** Seed for the random starting plugboards. */
+    private long _seed;
+}
@@ -0,0 +1,75 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import static enigma.TestUtils.*;
+import static enigma.CoincidenceSearchTest.*;
+
+/** The suite of all JUnit tests for the PlugboardSolver and NGrams
+ *  classes.
+ *  @author
+ */
+public class PlugboardSolverTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(30);
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void checkNGrams() {
+        Alphabet ab = new Alphabet("AB");
+        NGrams bigrams = NGrams.train(ab, 2, "AB BA B");
+        assertEquals(2, bigrams.order());
+        assertEquals(Math.log10(2.0 / 4), bigrams.logProb(1), 1e-6);
+        assertEquals(Math.log10(1.0 / 4), bigrams.logProb(2), 1e-6);
+        assertEquals(Math.log10(1.0 / 4), bigrams.logProb(3), 1e-6);
+        assertEquals(Math.log10(0.01 / 4), bigrams.logProb(0), 1e-6);
+        assertEquals(bigrams.logProb(1) + bigrams.logProb(2),
+                     bigrams.score(new int[] {0, 1, 0}, 3), 1e-6);
+    }
+
+    @Test
+    public void checkCycles() {
+        int[] plug = {3, 1, 4, 0, 2};
+        assertEquals("(AD) (CE)", PlugboardSolver.cycles(plug, UPPER));
+        assertEquals("", PlugboardSolver.cycles(new int[] {0, 1}, UPPER));
+    }
+
+    @Test
+    public void checkSolve() {
+        Configuration config = threeRotors();
+        String key = "* B II I III KPD (AR) (BT) (CS) (DE) (FO) (HN)";
+        String cipher = encrypt(config, key, PLAIN);
+        PlugboardSolver solver =
+            new PlugboardSolver(config, NGrams.train(UPPER, 3, PLAIN));
+        solver.setMaxPairs(10);
+        Candidate found =
+            solver.solve(Candidate.parse("* B II I III KPD", 4), cipher);
+        assertEquals(PLAIN.replace(" ", ""),
+                     found.machine(config).convert(cipher));
+    }
+
+    @Test
+    public void checkSolveNonWordLetters() {
+        Configuration config = dottedRotors();
+        Alphabet alphabet = config.alphabet();
+        Candidate key = Candidate.parse("* R I II AA", 3);
+        Machine machine = key.machine(config);
+        machine.setPlugboard(new Permutation("(A.) (E_)", alphabet));
+        String cipher = machine.convert(PLAIN);
+        PlugboardSolver solver =
+            new PlugboardSolver(config, NGrams.train(alphabet, 3, PLAIN));
+        Candidate found = solver.solve(key, cipher);
+        assertFalse(found.plugboard().contains("."));
+        assertEquals(found.plugboard(),
+                     Candidate.parse(found.toString(), 3).plugboard());
+        assertArrayEquals(new int[] { 0, 1, 3 },
+                          PlugboardSolver.plugLetters(new Alphabet("AB.1")));
+    }
+
+}
@@ -12,6 +12,19 @@ class Rotor {
         _permutation = perm;
         _setting = 0;
         _ringSetting = 0;
+        int n = perm.size();
+        if (n > 0 && n <= MAX_TABLED) {
+            _forwardTables = new int[n][n];
+            _backwardTables = new int[n][n];
+            for (int shift = 0; shift < n; shift++) {
+                for (int p = 0; p < n; p++) {
+                    _forwardTables[shift][p] = shifted(p, shift, true);
+                    _backwardTables[shift][p] = shifted(p, shift, false);
+                }
+            }
+        } else {
+            _forwardTables = _backwardTables = null;
+        }
     }
 
     /** Return my name. */
@@ -62,22 +75,64 @@ class Rotor {
     /** Return the conversion of P (an integer in the range 0..size()-1)
      *  according to my permutation. */
     int convertForward(int p) {
-        int finalPos = _permutation.permute(_permutation.wrap(_setting
-                + p - _ringSetting));
-        return _permutation.wrap(finalPos - _setting + _ringSetting);
+        return convertForward(p, shift(_setting, _ringSetting));
     }
 
     /** Return the conversion of E (an integer in the range 0..size()-1)
      *  according to the inverse of my permutation. */
     int convertBackward(int e) {
-        int finalPos = _permutation.invert(_permutation.wrap(_setting
-                + e - _ringSetting));
-        return _permutation.wrap(finalPos - _setting + _ringSetting);
+        return convertBackward(e, shift(_setting, _ringSetting));
+    }
+
+    /** Return the conversion of P (an integer in the range 0..size()-1)
+     *  according to my permutation when my setting is SHIFT positions
+     *  ahead of my ring setting (0 <= SHIFT < size()).  Does not depend
+     *  on or change my own setting. */
+    int convertForward(int p, int shift) {
+        if (_forwardTables != null) {
+            return _forwardTables[shift][p];
+        }
+        return shifted(p, shift, true);
+    }
+
+    /** Return the conversion of E (an integer in the range 0..size()-1)
+     *  according to the inverse of my permutation when my setting is
+     *  SHIFT positions ahead of my ring setting (0 <= SHIFT < size()).
+     *  Does not depend on or change my own setting. */
+    int convertBackward(int e, int shift) {
+        if (_backwardTables != null) {
+            return _backwardTables[shift][e];
+        }
+        return shifted(e, shift, false);
+    }
+
+    /** Return the conversion of P (0 <= P < size()) by my permutation if
+     *  FORWARD, and otherwise by its inverse, with my setting SHIFT
+     *  positions ahead of my ring setting, computed without tables. */
+    private int shifted(int p, int shift, boolean forward) {
+        int n = size();
+        int in = p + shift;
+        in = in >= n ? in - n : in;
+        int out = (forward ? _permutation.permute(in)
+                   : _permutation.invert(in)) - shift;
+        return out < 0 ? out + n : out;
+    }
+
+    /** Return SETTING - RINGSETTING, wrapped into the range
+     *  0..size()-1. */
+    int shift(int setting, int ringSetting) {
+        return _permutation.wrap(setting - ringSetting);
     }
 
     /** Returns true iff I am positioned to allow the rotor to my left
      *  to advance. */
     boolean atNotch() {
+        return atNotch(_setting);
+    }
+
+    /** Returns true iff I would allow the rotor to my left to advance
+     *  when at setting POSN. */
+    boolean atNotch(int posn) {
         return false;
     }
 
@@ -95,9 +150,21 @@ class Rotor {
         return "Rotor " + _name;
     }
 
+    /** Largest alphabet size for which conversion is tabulated for
+     *  every shift; the tables take 8 * size * size bytes. */
+    static final int MAX_TABLED = 256;
+
     /** My name. */
     private final String _name;
 
+    /** _forwardTables[s][p] is convertForward(p, s), or the whole array
+     *  is null if my alphabet is too large to tabulate.  Shared by every
+     *  machine I am inserted in, and never changed after construction. */
+    private final int[][] _forwardTables;
+
+    /** _backwardTables[s][e] is convertBackward(e, s), or null. */
+    private final int[][] _backwardTables;
+
     /** The permutation implemented by this rotor in its 0 position. */
     private Permutation _permutation;
 
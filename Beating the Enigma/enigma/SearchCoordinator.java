@@ -0,0 +1,522 @@
+package enigma;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Scanner;
+import java.util.zip.CRC32;
+
+import static enigma.EnigmaException.*;
+
+/** Runs a CoincidenceSearch over several worker processes, so that a
+ *  search is not bounded by the cores and heap of one JVM.  The search is
+ *  cut into the work units of CoincidenceSearch (a rotor order and a
+ *  setting of the leftmost rotor).  Workers, either launched by the
+ *  coordinator or started separately, connect over loopback sockets and
+ *  pull batches of units, as many at a time as they have threads to
+ *  search them on (see SearchWorker for the protocol), so fast workers
+ *  simply take more of them.  Once every unit is handed out, an idle
+ *  worker is given copies of units still being searched elsewhere;
+ *  whichever copy finishes first counts, so one slow or dead worker does
+ *  not hold up the end of the search.  Units held by a worker whose
+ *  connection is lost go back on the queue.
+ *
+ *  After each unit completes, the set of finished units and the best keys
+ *  so far are written to a checkpoint file (by writing a new file and
+ *  renaming it over the old).  A coordinator started on an existing
+ *  checkpoint for the same job searches only the units it lacks.
+ *  @author
+ */
+final class SearchCoordinator implements Closeable {
+
+    /** A coordinator for a search for the K best keys of CIPHERTEXT, for
+     *  machines made from the configuration whose file contents are
+     *  CONFIGTEXT, with ring search iff RINGSEARCH.  If CHECKPOINT is not
+     *  null, it names the checkpoint file. */
+    SearchCoordinator(String configText, String ciphertext, int k,
+                      boolean ringSearch, String checkpoint) {
+        if (k <= 0) {
+            throw error("number of candidates must be positive");
+        }
+        _configLines = configText.split("\r?\n");
+        _config = Configuration.read(new Scanner(
+            new StringReader(configText)));
+        _ciphertext = Main.WHITESPACE.matcher(ciphertext).replaceAll("");
+        _units = new CoincidenceSearch(_config, _ciphertext).numUnits();
+        _k = k;
+        _ringSearch = ringSearch;
+        _checkpoint = checkpoint == null ? null : Paths.get(checkpoint);
+        _done = new BitSet(_units);
+        if (_checkpoint != null && Files.exists(_checkpoint)) {
+            restore();
+        }
+        for (int u = _done.nextClearBit(0); u < _units;
+             u = _done.nextClearBit(u + 1)) {
+            _pending.add(u);
+        }
+    }
+
+    /** Start accepting workers on loopback port PORT (0 for any free
+     *  port). */
+    void start(int port) {
+        try {
+            _server = new ServerSocket(port, 0,
+                                       InetAddress.getLoopbackAddress());
+        } catch (IOException excp) {
+            throw error("could not listen on port %d: %s", port,
+                        excp.getMessage());
+        }
+        Thread acceptor = new Thread(this::accept, "coordinator");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /** Return the port I accept workers on. */
+    int port() {
+        return _server.getLocalPort();
+    }
+
+    /** Launch WORKERS worker processes, running this JVM with its class
+     *  path. */
+    void launch(int workers) {
+        String java = Paths.get(System.getProperty("java.home"),
+                                "bin", "java").toString();
+        for (int w = 0; w < workers; w += 1) {
+            ProcessBuilder builder = new ProcessBuilder(
+                java, "-cp", System.getProperty("java.class.path"),
+                SearchWorker.class.getName(),
+                _server.getInetAddress().getHostAddress(),
+                Integer.toString(port()));
+            builder.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+            builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+            try {
+                synchronized (this) {
+                    _processes.add(builder.start());
+                }
+            } catch (IOException excp) {
+                throw error("could not launch worker: %s",
+                            excp.getMessage());
+            }
+        }
+    }
+
+    /** Wait for every work unit to be searched, and return the K best keys
+     *  found, best first. */
+    synchronized List<Candidate> await() {
+        while (_done.cardinality() < _units) {
+            if (_failure != null) {
+                throw _failure;
+            }
+            if (!_processes.isEmpty() && _connections == 0
+                && _processes.stream().noneMatch(Process::isAlive)) {
+                throw error("all workers exited with %d units unsearched",
+                            _units - _done.cardinality());
+            }
+            try {
+                wait(POLL_MILLIS);
+            } catch (InterruptedException excp) {
+                Thread.currentThread().interrupt();
+                throw error("interrupted");
+            }
+        }
+        List<Candidate> result = new ArrayList<>(_best);
+        Collections.sort(result, Collections.reverseOrder());
+        return result;
+    }
+
+    /** Return the number of work units. */
+    int numUnits() {
+        return _units;
+    }
+
+    /** Return the number of work units searched. */
+    synchronized int numDone() {
+        return _done.cardinality();
+    }
+
+    /** Stop accepting workers and stop any I launched. */
+    @Override
+    public void close() {
+        try {
+            if (_server != null) {
+                _server.close();
+            }
+        } catch (IOException excp) {
+            /* Ignore. */
+        }
+        synchronized (this) {
+            for (Process process : _processes) {
+                process.destroy();
+            }
+        }
+    }
+
+    /** Accept workers until my server socket is closed, serving each on a
+     *  thread of its own. */
+    private void accept() {
+        while (true) {
+            Socket socket;
+            try {
+                socket = _server.accept();
+            } catch (IOException excp) {
+                return;
+            }
+            Thread server = new Thread(() -> serve(socket), "worker");
+            server.setDaemon(true);
+            server.start();
+        }
+    }
+
+    /** Serve the worker connected on SOCKET until it is done or its
+     *  connection fails, putting back any unit it holds. */
+    private void serve(Socket socket) {
+        synchronized (this) {
+            _connections += 1;
+        }
+        List<Integer> held = new ArrayList<>();
+        try (Socket s = socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(
+                 s.getInputStream(), StandardCharsets.UTF_8));
+             PrintWriter out = new PrintWriter(new BufferedWriter(
+                 new OutputStreamWriter(s.getOutputStream(),
+                                        StandardCharsets.UTF_8)))) {
+            out.printf("%s %d %d %d%n", SearchWorker.JOB, _k,
+                       _ringSearch ? 1 : 0, _configLines.length);
+            for (String line : _configLines) {
+                out.println(line);
+            }
+            out.printf("%s %s%n", SearchWorker.TEXT, _ciphertext);
+            out.flush();
+            while (true) {
+                String line = in.readLine();
+                if (line == null) {
+                    return;
+                }
+                if (line.startsWith(SearchWorker.NEXT)) {
+                    String[] request = line.split(" ");
+                    int n = request.length > 1
+                        ? Integer.parseInt(request[1]) : 1;
+                    List<Integer> batch = next(n);
+                    if (batch.isEmpty()) {
+                        out.println(SearchWorker.DONE);
+                        out.flush();
+                        return;
+                    }
+                    held.addAll(batch);
+                    StringBuilder reply =
+                        new StringBuilder(SearchWorker.UNIT);
+                    for (int u : batch) {
+                        reply.append(' ').append(u);
+                    }
+                    out.println(reply);
+                    out.flush();
+                } else {
+                    String[] result =
+                        SearchWorker.fields(line, SearchWorker.RESULT, 3);
+                    int u = Integer.parseInt(result[1]);
+                    List<Candidate> found = new ArrayList<>();
+                    for (int m = Integer.parseInt(result[2]); m > 0;
+                         m -= 1) {
+                        found.add(parse(in.readLine()));
+                    }
+                    complete(u, found);
+                    held.remove(Integer.valueOf(u));
+                }
+            }
+        } catch (IOException | NumberFormatException | EnigmaException
+                 excp) {
+            /* Treat as a lost worker. */
+        } finally {
+            synchronized (this) {
+                _connections -= 1;
+                for (int u : held) {
+                    release(u);
+                }
+                notifyAll();
+            }
+        }
+    }
+
+    /** Return up to N units for an idle worker:  unsearched units no one
+     *  holds if there are any, else copies of the units handed out
+     *  longest ago that are still being searched, else none, when all
+     *  units are searched. */
+    private synchronized List<Integer> next(int n) {
+        List<Integer> batch = new ArrayList<>();
+        while (batch.size() < n && !_pending.isEmpty()) {
+            int u = _pending.poll();
+            _inFlight.add(u);
+            batch.add(u);
+        }
+        if (batch.isEmpty()) {
+            Iterator<Integer> oldest = _inFlight.iterator();
+            while (batch.size() < n && oldest.hasNext()) {
+                batch.add(oldest.next());
+                oldest.remove();
+            }
+            _inFlight.addAll(batch);
+        }
+        for (int u : batch) {
+            _holders.merge(u, 1, Integer::sum);
+        }
+        return batch;
+    }
+
+    /** Note that a worker holding unit U has gone, requeueing U if no one
+     *  else holds it. */
+    private synchronized void release(int u) {
+        if (_holders.merge(u, -1, Integer::sum) <= 0) {
+            _holders.remove(u);
+            if (_inFlight.remove(u) && !_done.get(u)) {
+                _pending.addFirst(u);
+            }
+        }
+    }
+
+    /** Record that unit U has been searched, yielding FOUND. */
+    private synchronized void complete(int u, List<Candidate> found) {
+        if (_holders.merge(u, -1, Integer::sum) <= 0) {
+            _holders.remove(u);
+        }
+        if (_done.get(u)) {
+            return;
+        }
+        _done.set(u);
+        _inFlight.remove(u);
+        _pending.remove(u);
+        for (Candidate candidate : found) {
+            _best.add(candidate);
+            if (_best.size() > _k) {
+                _best.poll();
+            }
+        }
+        if (_checkpoint != null) {
+            try {
+                save();
+            } catch (EnigmaException excp) {
+                _failure = excp;
+            }
+        }
+        notifyAll();
+    }
+
+    /** Return the candidate on LINE, "SCORE SETTINGS". */
+    private Candidate parse(String line) {
+        if (line == null) {
+            throw error("truncated result");
+        }
+        int space = line.indexOf(' ');
+        double score = Double.parseDouble(line.substring(0, space));
+        Candidate key = Candidate.parse(line.substring(space + 1),
+                                        _config.numRotors());
+        return key.withPlugboard(key.plugboard(), score);
+    }
+
+    /** Return the line identifying my job in a checkpoint. */
+    private String jobLine() {
+        CRC32 crc = new CRC32();
+        for (String line : _configLines) {
+            crc.update(line.getBytes(StandardCharsets.UTF_8));
+            crc.update('\n');
+        }
+        crc.update(_ciphertext.getBytes(StandardCharsets.UTF_8));
+        return String.format("%s %d %d %d %08x", SearchWorker.JOB, _units,
+                             _k, _ringSearch ? 1 : 0, crc.getValue());
+    }
+
+    /** Write my progress to my checkpoint file. */
+    private void save() {
+        List<String> lines = new ArrayList<>();
+        lines.add(jobLine());
+        StringBuilder done = new StringBuilder(DONE_PREFIX);
+        for (int u = 0; u < _units; u += 1) {
+            done.append(_done.get(u) ? '1' : '0');
+        }
+        lines.add(done.toString());
+        for (Candidate candidate : _best) {
+            lines.add(candidate.score() + " " + candidate);
+        }
+        Path temp = _checkpoint.resolveSibling(_checkpoint.getFileName()
+                                               + ".tmp");
+        try {
+            Files.write(temp, lines, StandardCharsets.UTF_8);
+            Files.move(temp, _checkpoint,
+                       StandardCopyOption.REPLACE_EXISTING,
+                       StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException excp) {
+            throw error("could not write checkpoint %s: %s", _checkpoint,
+                        excp.getMessage());
+        }
+    }
+
+    /** Read my progress from my checkpoint file. */
+    private void restore() {
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(_checkpoint, StandardCharsets.UTF_8);
+        } catch (IOException excp) {
+            throw error("could not read checkpoint %s", _checkpoint);
+        }
+        if (lines.size() < 2 || !lines.get(0).equals(jobLine())) {
+            throw error("checkpoint %s is for a different search",
+                        _checkpoint);
+        }
+        String done = lines.get(1);
+        if (!done.startsWith(DONE_PREFIX)
+            || done.length() != DONE_PREFIX.length() + _units) {
+            throw error("checkpoint %s is corrupt", _checkpoint);
+        }
+        for (int u = 0; u < _units; u += 1) {
+            _done.set(u, done.charAt(DONE_PREFIX.length() + u) == '1');
+        }
+        try {
+            for (String line : lines.subList(2, lines.size())) {
+                _best.add(parse(line));
+            }
+        } catch (NumberFormatException | StringIndexOutOfBoundsException
+                 excp) {
+            throw error("checkpoint %s is corrupt", _checkpoint);
+        }
+    }
+
+    /** Search for the key of a message across worker processes, as
+     *  specified by ARGS, which are
+     *  [-r] [-w WORKERS] [-p PORT] [-c CHECKPOINT] CONFIG INPUT [K].
+     *  CONFIG, INPUT and K are as for CoincidenceSearch, as is -r.
+     *  Launches WORKERS (by default 2) workers, and accepts others on
+     *  loopback port PORT (by default, any free port, which is reported
+     *  on the standard error).  With -c, progress is checkpointed to
+     *  CHECKPOINT, and resumed from it if it exists. */
+    public static void main(String... args) {
+        try {
+            boolean ring = false;
+            int workers = DEFAULT_WORKERS;
+            int port = 0;
+            String checkpoint = null;
+            int a;
+            try {
+                for (a = 0; a < args.length && args[a].startsWith("-");
+                     a += 1) {
+                    if (args[a].equals("-r")) {
+                        ring = true;
+                    } else if (args[a].equals("-w") && a + 1 < args.length) {
+                        workers = Integer.parseInt(args[++a]);
+                    } else if (args[a].equals("-p") && a + 1 < args.length) {
+                        port = Integer.parseInt(args[++a]);
+                    } else if (args[a].equals("-c") && a + 1 < args.length) {
+                        checkpoint = args[++a];
+                    } else {
+                        throw error("unknown option: %s", args[a]);
+                    }
+                }
+            } catch (NumberFormatException excp) {
+                throw error("bad number: %s", excp.getMessage());
+            }
+            if (args.length - a < 2 || args.length - a > 3) {
+                throw error("usage: [-r] [-w WORKERS] [-p PORT] "
+                            + "[-c CHECKPOINT] CONFIG INPUT [K]");
+            }
+            String configText = readFile(args[a]);
+            String text = readFile(args[a + 1]);
+            int k = 1;
+            if (args.length - a > 2) {
+                try {
+                    k = Integer.parseInt(args[a + 2]);
+                } catch (NumberFormatException excp) {
+                    throw error("bad number of candidates: %s", args[a + 2]);
+                }
+            }
+            try (SearchCoordinator coordinator = new SearchCoordinator(
+                     configText, text, k, ring, checkpoint)) {
+                coordinator.start(port);
+                System.err.printf("Listening on port %d; %d of %d units "
+                                  + "searched%n", coordinator.port(),
+                                  coordinator.numDone(),
+                                  coordinator.numUnits());
+                coordinator.launch(workers);
+                for (Candidate candidate : coordinator.await()) {
+                    System.out.println(candidate);
+                }
+            }
+            return;
+        } catch (EnigmaException excp) {
+            System.err.printf("Error: %s%n", excp.getMessage());
+        }
+        System.exit(1);
+    }
+
+    /** Return the contents of the file named NAME. */
+    private static String readFile(String name) {
+        try {
+            return new String(Files.readAllBytes(new File(name).toPath()),
+                              StandardCharsets.UTF_8);
+        } catch (IOException excp) {
+            throw error("could not open %s", name);
+        }
+    }
+
+    /** Default number of workers launched. */
+    static final int DEFAULT_WORKERS = 2;
+    /** Interval at which await checks for dead workers. */
+    private static final long POLL_MILLIS = 1000;
+    /** Start of the checkpoint line recording finished units. */
+    private static final String DONE_PREFIX = "DONE ";
+
+    /** The lines of the configuration file. */
+    private final String[] _configLines;
+    /** The configuration they describe. */
+    private final Configuration _config;
+    /** The ciphertext, without whitespace. */
+    private final String _ciphertext;
+    /** The number of work units. */
+    private final int _units;
+    /** The number of keys kept. */
+    private final int _k;
+    /** True iff the ring of the rightmost rotor is searched. */
+    private final boolean _ringSearch;
+    /** The checkpoint file, or null. */
+    private final Path _checkpoint;
+    /** The units searched. */
+    private final BitSet _done;
+    /** Units no worker holds that remain to be searched. */
+    private final Deque<Integer> _pending = new ArrayDeque<>();
+    /** Units handed out but not yet searched, oldest first. */
+    private final LinkedHashSet<Integer> _inFlight = new LinkedHashSet<>();
+    /** The number of workers holding each unit in _inFlight. */
+    private final Map<Integer, Integer> _holders = new HashMap<>();
+    /** The best keys found so far. */
+    private final PriorityQueue<Candidate> _best = new PriorityQueue<>();
+    /** The worker processes I launched. */
+    private final List<Process> _processes = new ArrayList<>();
+    /** The number of workers connected. */
+    private int _connections;
+    /** The error that stopped the search, or null. */
+    private EnigmaException _failure;
+    /** The socket I accept workers on. */
+    private ServerSocket _server;
+}
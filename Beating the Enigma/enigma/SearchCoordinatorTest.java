@@ -0,0 +1,172 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static enigma.TestUtils.*;
+import static enigma.CoincidenceSearchTest.*;
+
+/** The suite of all JUnit tests for the SearchCoordinator class.
+ *  @author
+ */
+public class SearchCoordinatorTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(60);
+
+    /* ***** TESTING UTILITIES ***** */
+
+    /** The configuration file for threeRotors(). */
+    private static final String CONFIG =
+        UPPER_STRING + " 4 3\n"
+        + " I MQ " + NAVALA.get("I") + "\n"
+        + " II ME " + NAVALA.get("II") + "\n"
+        + " III MV " + NAVALA.get("III") + "\n"
+        + " B R " + NAVALA.get("B") + "\n";
+
+    /** The key of the test message. */
+    private static final String KEY = "* B II I III KPD";
+
+    /** Return a thread running a worker for COORDINATOR. */
+    private static Thread worker(SearchCoordinator coordinator) {
+        Thread worker = new Thread(
+            () -> SearchWorker.run("localhost", coordinator.port()));
+        worker.setDaemon(true);
+        worker.start();
+        return worker;
+    }
+
+    /** Return the settings lines of CANDIDATES. */
+    private static List<String> keys(List<Candidate> candidates) {
+        List<String> result = new ArrayList<>();
+        for (Candidate candidate : candidates) {
+            result.add(candidate.toString());
+        }
+        return result;
+    }
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void checkMatchesSearch() {
+        String cipher = encrypt(threeRotors(), KEY, PLAIN);
+        List<Candidate> expected =
+            new CoincidenceSearch(threeRotors(), cipher).search(3);
+        try (SearchCoordinator coordinator =
+             new SearchCoordinator(CONFIG, cipher, 3, false, null)) {
+            coordinator.start(0);
+            worker(coordinator);
+            worker(coordinator);
+            List<Candidate> found = coordinator.await();
+            assertEquals(keys(expected), keys(found));
+            assertEquals(expected.get(0).score(), found.get(0).score(),
+                         0.0);
+            assertEquals(KEY, found.get(0).toString());
+        }
+    }
+
+    @Test
+    public void checkLostWorker() throws IOException {
+        String cipher = encrypt(threeRotors(), KEY, PLAIN);
+        try (SearchCoordinator coordinator =
+             new SearchCoordinator(CONFIG, cipher, 1, false, null)) {
+            coordinator.start(0);
+            try (Socket socket = new Socket("localhost", coordinator.port());
+                 BufferedReader in = new BufferedReader(
+                     new InputStreamReader(socket.getInputStream()));
+                 PrintWriter out =
+                     new PrintWriter(socket.getOutputStream(), true)) {
+                assertTrue(in.readLine().startsWith(SearchWorker.JOB));
+                out.println(SearchWorker.NEXT);
+                String line;
+                do {
+                    line = in.readLine();
+                } while (!line.startsWith(SearchWorker.UNIT));
+            }
+            worker(coordinator);
+            assertEquals(KEY, coordinator.await().get(0).toString());
+        }
+    }
+
+    @Test
+    public void checkBatches() throws IOException {
+        String cipher = encrypt(threeRotors(), KEY, PLAIN);
+        List<Candidate> expected =
+            new CoincidenceSearch(threeRotors(), cipher).search(2);
+        try (SearchCoordinator coordinator =
+             new SearchCoordinator(CONFIG, cipher, 2, false, null)) {
+            coordinator.start(0);
+            try (Socket socket = new Socket("localhost", coordinator.port());
+                 BufferedReader in = new BufferedReader(
+                     new InputStreamReader(socket.getInputStream()));
+                 PrintWriter out =
+                     new PrintWriter(socket.getOutputStream(), true)) {
+                String line;
+                do {
+                    line = in.readLine();
+                } while (!line.startsWith(SearchWorker.TEXT));
+                out.println(SearchWorker.NEXT + " 3");
+                String[] units = in.readLine().split(" ");
+                assertEquals(SearchWorker.UNIT, units[0]);
+                assertEquals(4, units.length);
+                assertFalse(units[1].equals(units[2]));
+                assertFalse(units[2].equals(units[3]));
+            }
+            Thread worker = new Thread(() -> SearchWorker.run(
+                "localhost", coordinator.port(), new ForkJoinPool(3)));
+            worker.setDaemon(true);
+            worker.start();
+            assertEquals(keys(expected), keys(coordinator.await()));
+        }
+    }
+
+    @Test
+    public void checkResume() throws IOException {
+        String cipher = encrypt(threeRotors(), KEY, PLAIN);
+        File file = File.createTempFile("search", ".ckpt");
+        file.deleteOnExit();
+        assertTrue(file.delete());
+        List<Candidate> first;
+        try (SearchCoordinator coordinator =
+             new SearchCoordinator(CONFIG, cipher, 2, false,
+                                   file.getPath())) {
+            coordinator.start(0);
+            worker(coordinator);
+            first = coordinator.await();
+        }
+        assertTrue(file.exists());
+        try (SearchCoordinator coordinator =
+             new SearchCoordinator(CONFIG, cipher, 2, false,
+                                   file.getPath())) {
+            assertEquals(coordinator.numUnits(), coordinator.numDone());
+            List<Candidate> resumed = coordinator.await();
+            assertEquals(keys(first), keys(resumed));
+            assertEquals(first.get(1).score(), resumed.get(1).score(), 0.0);
+        }
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void checkWrongCheckpoint() throws IOException {
+        File file = File.createTempFile("search", ".ckpt");
+        file.deleteOnExit();
+        try (SearchCoordinator coordinator =
+             new SearchCoordinator(CONFIG, "ABC", 1, false,
+                                   file.getPath())) {
+            fail("accepted a checkpoint for another search");
+        }
+    }
+
+}
@@ -0,0 +1,151 @@
+package enigma;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Scanner;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import static enigma.EnigmaException.*;
+
+/** A worker for a SearchCoordinator, normally run in a process of its
+ *  own.  It connects to the coordinator, receives the search job, and
+ *  then repeatedly asks for a batch of work units, one for each thread
+ *  of its ForkJoinPool, searches them concurrently with a
+ *  CoincidenceSearch, and reports the best keys found in each, until the
+ *  coordinator has nothing left to hand out.
+ *
+ *  The protocol is line-based.  The coordinator opens with
+ *      JOB K RING N
+ *  followed by the N lines of the configuration file and a line
+ *      TEXT CIPHERTEXT
+ *  where RING is 1 for a ring search and 0 otherwise.  The worker then
+ *  sends NEXT B, asking for up to B units, to which the coordinator
+ *  answers UNIT U1 U2 ... (at least one unit) or DONE.  For each unit U
+ *  searched, the worker sends
+ *      RESULT U M
+ *  followed by M lines "SCORE SETTINGS", one for each key found, and
+ *  after the whole batch, NEXT B again.
+ *  @author
+ */
+final class SearchWorker {
+
+    /** Not instantiable. */
+    private SearchWorker() {
+    }
+
+    /** Serve the coordinator listening at HOST:PORT until it has no more
+     *  work, searching on the common pool.  Return the number of units
+     *  searched. */
+    static int run(String host, int port) {
+        return run(host, port, ForkJoinPool.commonPool());
+    }
+
+    /** Serve the coordinator listening at HOST:PORT until it has no more
+     *  work, searching a batch of units at a time on POOL, one for each of
+     *  its threads.  Return the number of units searched. */
+    static int run(String host, int port, ForkJoinPool pool) {
+        int units = 0;
+        try (Socket socket = new Socket(host, port);
+             BufferedReader in = new BufferedReader(new InputStreamReader(
+                 socket.getInputStream(), StandardCharsets.UTF_8));
+             PrintWriter out = new PrintWriter(new BufferedWriter(
+                 new OutputStreamWriter(socket.getOutputStream(),
+                                        StandardCharsets.UTF_8)))) {
+            String[] job = fields(in.readLine(), JOB, 4);
+            int k = Integer.parseInt(job[1]);
+            boolean ring = job[2].equals("1");
+            StringBuilder configText = new StringBuilder();
+            for (int n = Integer.parseInt(job[3]); n > 0; n -= 1) {
+                configText.append(in.readLine()).append('\n');
+            }
+            Configuration config = Configuration.read(new Scanner(
+                new StringReader(configText.toString())));
+            String[] text = fields(in.readLine(), TEXT, 2);
+            CoincidenceSearch search =
+                new CoincidenceSearch(config, text[1], pool);
+            search.setRingSearch(ring);
+            int batch = pool.getParallelism();
+            while (true) {
+                out.printf("%s %d%n", NEXT, batch);
+                out.flush();
+                String line = in.readLine();
+                if (DONE.equals(line)) {
+                    return units;
+                }
+                String[] assigned = fields(line, UNIT, 2)[1].split(" ");
+                List<ForkJoinTask<List<Candidate>>> tasks = new ArrayList<>();
+                for (String field : assigned) {
+                    int u = Integer.parseInt(field);
+                    tasks.add(pool.submit(() -> search.search(k, u, u + 1)));
+                }
+                for (int i = 0; i < assigned.length; i += 1) {
+                    List<Candidate> found = tasks.get(i).join();
+                    out.printf("%s %s %d%n", RESULT, assigned[i],
+                               found.size());
+                    for (Candidate candidate : found) {
+                        out.printf("%s %s%n", candidate.score(), candidate);
+                    }
+                }
+                out.flush();
+                units += assigned.length;
+            }
+        } catch (IOException | NumberFormatException excp) {
+            throw error("lost coordinator at %s:%d: %s", host, port,
+                        excp.getMessage());
+        }
+    }
+
+    /** Return the N fields of LINE, a message that should begin with
+     *  KEYWORD. */
+    static String[] fields(String line, String keyword, int n) {
+        if (line == null) {
+            throw error("connection closed while expecting %s", keyword);
+        }
+        String[] result = line.split(" ", n);
+        if (result.length != n || !result[0].equals(keyword)) {
+            throw error("expected %s, got: %s", keyword, line);
+        }
+        return result;
+    }
+
+    /** Serve a coordinator, as specified by ARGS, which are HOST PORT. */
+    public static void main(String... args) {
+        try {
+            if (args.length != 2) {
+                throw error("usage: HOST PORT");
+            }
+            try {
+                run(args[0], Integer.parseInt(args[1]));
+            } catch (NumberFormatException excp) {
+                throw error("bad port: %s", args[1]);
+            }
+            return;
+        } catch (EnigmaException excp) {
+            System.err.printf("Error: %s%n", excp.getMessage());
+        }
+        System.exit(1);
+    }
+
+    /** Description of the search job. */
+    static final String JOB = "JOB";
+    /** The ciphertext searched. */
+    static final String TEXT = "TEXT";
+    /** Request for a work unit. */
+    static final String NEXT = "NEXT";
+    /** Assignment of a work unit. */
+    static final String UNIT = "UNIT";
+    /** Report of the keys found in a work unit. */
+    static final String RESULT = "RESULT";
+    /** Notice that no work remains. */
+    static final String DONE = "DONE";
+}
@@ -10,8 +10,20 @@ public class UnitTest {
     /** Run the JUnit tests in this package. Add xxxTest.class entries to
      *  the arguments of runClasses to run other JUnit tests. */
     public static void main(String[] ignored) {
-        System.exit(textui.runClasses(PermutationTest.class,
-                                      MovingRotorTest.class));
+        System.exit(textui.runClasses(AlphabetTest.class,
+                                      MachineTest.class,
+                                      PermutationTest.class,
+                                      MovingRotorTest.class,
+                                      CoincidenceSearchTest.class,
+                                      PlugboardSolverTest.class,
+                                      BombeTest.class,
+                                      CribScannerTest.class,
+                                      CycleCatalogTest.class,
+                                      BanburismusTest.class,
+                                      SearchCoordinatorTest.class,
+                                      ConfigurationTest.class,
+                                      EnigmaDaemonTest.class,
+                                      EnigmaFilterTest.class));
     }
 
 }
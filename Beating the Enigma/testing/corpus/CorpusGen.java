@@ -0,0 +1,333 @@
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/** Generates a large, deterministic input for enigma.Main, together with
+ *  the output Main should produce for it.  The output is computed by the
+ *  reference machine below, a direct transcription of the stepping and
+ *  encoding rules that shares no code with the enigma package, so that
+ *  comparing Main's output against it checks every optimized path.
+ *
+ *  Usage:  java CorpusGen.java CONFIG BASE MEGABYTES SETTINGS [SEED]
+ *
+ *  Reads the configuration file CONFIG and writes BASE.in, holding about
+ *  MEGABYTES megabytes of message lines divided among SETTINGS settings
+ *  lines (random rotor orders, settings, rings and plugboards), BASE.out,
+ *  the expected output, and BASE.conf, a copy of CONFIG, as the scripts
+ *  test-correct and throughput expect.  The same arguments always give the
+ *  same files.
+ *  @author
+ */
+public class CorpusGen {
+
+    /** A rotor of the reference machine. */
+    static class Wheel {
+        /** A rotor named NAME of kind KIND ('M', 'N' or 'R') with notches
+         *  at the indices for which NOTCH is true, taking index c to
+         *  FORWARD[c] in its 0 setting. */
+        Wheel(String name, char kind, boolean[] notch, int[] forward) {
+            this.name = name;
+            this.kind = kind;
+            this.notch = notch;
+            this.forward = forward;
+            backward = new int[forward.length];
+            for (int c = 0; c < forward.length; c++) {
+                backward[forward[c]] = c;
+            }
+        }
+
+        /** Name. */
+        final String name;
+        /** 'M' for moving, 'N' for fixed, 'R' for a reflector. */
+        final char kind;
+        /** Notch at each setting. */
+        final boolean[] notch;
+        /** Wiring and its inverse. */
+        final int[] forward, backward;
+    }
+
+    /** Parse the configuration file text TEXT into _alphabet, _slots,
+     *  _pawls and _wheels. */
+    static void readConfig(String text) {
+        String[] tokens = text.trim().split("\\s+");
+        int k = 0;
+        _alphabet = tokens[k++];
+        _slots = Integer.parseInt(tokens[k++]);
+        _pawls = Integer.parseInt(tokens[k++]);
+        int n = _alphabet.length();
+        while (k < tokens.length) {
+            String name = tokens[k++];
+            String type = tokens[k++];
+            boolean[] notch = new boolean[n];
+            for (char ch : type.substring(1).toCharArray()) {
+                if (_alphabet.indexOf(ch) >= 0) {
+                    notch[_alphabet.indexOf(ch)] = true;
+                }
+            }
+            StringBuilder cycles = new StringBuilder();
+            while (k < tokens.length && tokens[k].startsWith("(")) {
+                cycles.append(tokens[k++]);
+            }
+            _wheels.put(name, new Wheel(name, type.charAt(0), notch,
+                                        permutation(cycles.toString())));
+            _names.add(name);
+        }
+    }
+
+    /** Return the permutation of alphabet indices given by CYCLES. */
+    static int[] permutation(String cycles) {
+        int n = _alphabet.length();
+        int[] result = new int[n];
+        for (int c = 0; c < n; c++) {
+            result[c] = c;
+        }
+        for (String cycle : cycles.replace("(", "").split("\\)")) {
+            for (int j = 0; j < cycle.length(); j++) {
+                char to = cycle.charAt((j + 1) % cycle.length());
+                result[_alphabet.indexOf(cycle.charAt(j))] =
+                    _alphabet.indexOf(to);
+            }
+        }
+        return result;
+    }
+
+    /** Set up the reference machine according to settings line LINE. */
+    static void setUp(String line) {
+        String[] tokens = line.trim().split("\\s+");
+        _inserted = new Wheel[_slots];
+        _posns = new int[_slots];
+        _rings = new int[_slots];
+        for (int i = 0; i < _slots; i++) {
+            _inserted[i] = _wheels.get(tokens[1 + i]);
+        }
+        int k = _slots + 1;
+        for (int i = 1; i < _slots; i++) {
+            _posns[i] = _alphabet.indexOf(tokens[k].charAt(i - 1));
+        }
+        k += 1;
+        if (k < tokens.length && !tokens[k].startsWith("(")) {
+            for (int i = 1; i < _slots; i++) {
+                _rings[i] = _alphabet.indexOf(tokens[k].charAt(i - 1));
+            }
+            k += 1;
+        }
+        StringBuilder plugboard = new StringBuilder();
+        while (k < tokens.length) {
+            plugboard.append(tokens[k++]);
+        }
+        _plugboard = permutation(plugboard.toString());
+    }
+
+    /** Return index C converted by the reference machine, after stepping
+     *  it.  A moving rotor advances if it is the rightmost rotor, if the
+     *  rotor to its right is at a notch, or if it is at a notch itself and
+     *  the rotor to its left also moves. */
+    static int convert(int c) {
+        int n = _alphabet.length();
+        boolean[] moves = new boolean[_slots];
+        for (int i = 1; i < _slots; i++) {
+            if (_inserted[i].kind == 'M') {
+                moves[i] = i == _slots - 1
+                    || _inserted[i + 1].notch[_posns[i + 1]]
+                    || (_inserted[i - 1].kind == 'M'
+                        && _inserted[i].notch[_posns[i]]);
+            }
+        }
+        for (int i = 1; i < _slots; i++) {
+            if (moves[i]) {
+                _posns[i] = (_posns[i] + 1) % n;
+            }
+        }
+        c = _plugboard[c];
+        for (int i = _slots - 1; i >= 0; i--) {
+            int shift = _posns[i] - _rings[i];
+            c = Math.floorMod(
+                _inserted[i].forward[Math.floorMod(c + shift, n)] - shift, n);
+        }
+        for (int i = 1; i < _slots; i++) {
+            int shift = _posns[i] - _rings[i];
+            c = Math.floorMod(
+                _inserted[i].backward[Math.floorMod(c + shift, n)] - shift, n);
+        }
+        return _plugboard[c];
+    }
+
+    /** Return a random settings line, chosen with RANDOM. */
+    static String settingsLine(Random random) {
+        List<String> reflectors = new ArrayList<>();
+        List<String> fixed = new ArrayList<>();
+        List<String> moving = new ArrayList<>();
+        for (String name : _names) {
+            char kind = _wheels.get(name).kind;
+            (kind == 'M' ? moving : kind == 'N' ? fixed : reflectors)
+                .add(name);
+        }
+        Collections.shuffle(reflectors, random);
+        Collections.shuffle(fixed, random);
+        Collections.shuffle(moving, random);
+        StringBuilder line = new StringBuilder("* ").append(reflectors.get(0));
+        for (int i = 1; i < _slots - _pawls; i++) {
+            line.append(' ').append(fixed.get(i - 1));
+        }
+        for (int i = 0; i < _pawls; i++) {
+            line.append(' ').append(moving.get(i));
+        }
+        line.append(' ').append(letters(random, _slots - 1));
+        if (random.nextBoolean()) {
+            line.append(' ').append(letters(random, _slots - 1));
+        }
+        List<Character> plugs = new ArrayList<>();
+        for (char ch : _alphabet.toCharArray()) {
+            if (Character.isLetterOrDigit(ch) || ch == '_') {
+                plugs.add(ch);
+            }
+        }
+        Collections.shuffle(plugs, random);
+        int pairs = random.nextInt(plugs.size() / 2 + 1);
+        for (int p = 0; p < pairs; p++) {
+            line.append(" (").append(plugs.get(2 * p))
+                .append(plugs.get(2 * p + 1)).append(')');
+        }
+        return line.toString();
+    }
+
+    /** Return LEN random characters of the alphabet, chosen with
+     *  RANDOM. */
+    static String letters(Random random, int len) {
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < len; i++) {
+            result.append(_alphabet.charAt(random.nextInt(_alphabet.length())));
+        }
+        return result.toString();
+    }
+
+    /** Return a random message line, chosen with RANDOM: words of random
+     *  letters separated by blanks, usually of a typical line length and
+     *  occasionally much longer, or now and then empty. */
+    static String messageLine(Random random) {
+        int len;
+        int kind = random.nextInt(LINE_KINDS);
+        if (kind == 0) {
+            return "";
+        } else if (kind == 1) {
+            len = random.nextInt(LONG_LINE);
+        } else {
+            len = random.nextInt(SHORT_LINE);
+        }
+        StringBuilder line = new StringBuilder();
+        while (line.length() < len) {
+            if (line.length() > 0) {
+                line.append(' ');
+            }
+            line.append(letters(random, 1 + random.nextInt(MAX_WORD)));
+        }
+        return line.toString();
+    }
+
+    /** Write LINE, converted by the reference machine and grouped in fives,
+     *  to OUT. */
+    static void writeConverted(String line, Writer out) throws IOException {
+        int k = 0;
+        for (int i = 0; i < line.length(); i++) {
+            char ch = line.charAt(i);
+            if (ch == ' ') {
+                continue;
+            }
+            if (k > 0 && k % GROUP == 0) {
+                out.write(' ');
+            }
+            out.write(_alphabet.charAt(convert(_alphabet.indexOf(ch))));
+            k += 1;
+        }
+        out.write('\n');
+    }
+
+    /** Generate a corpus as described in the class comment, according to
+     *  ARGS. */
+    public static void main(String... args) throws IOException {
+        if (args.length < 4 || args.length > 5) {
+            System.err.println("Usage: java CorpusGen.java CONFIG BASE "
+                               + "MEGABYTES SETTINGS [SEED]");
+            System.exit(1);
+        }
+        Charset charset = Charset.defaultCharset();
+        String config = new String(Files.readAllBytes(Paths.get(args[0])),
+                                   charset);
+        readConfig(config);
+        String base = args[1];
+        long target = (long) (Double.parseDouble(args[2]) * MEGABYTE);
+        int settings = Integer.parseInt(args[3]);
+        Random random = new Random(args.length > 4
+                                   ? Long.parseLong(args[4]) : DEFAULT_SEED);
+        Files.write(Paths.get(base + ".conf"), config.getBytes(charset));
+        try (Writer in = writer(base + ".in", charset);
+             Writer out = writer(base + ".out", charset)) {
+            long written = 0;
+            for (int s = 0; s < settings; s++) {
+                String line = settingsLine(random);
+                in.write(line);
+                in.write('\n');
+                written += line.length() + 1;
+                setUp(line);
+                long limit = target * (s + 1) / settings;
+                do {
+                    line = messageLine(random);
+                    in.write(line);
+                    in.write('\n');
+                    written += line.length() + 1;
+                    writeConverted(line, out);
+                } while (written < limit);
+            }
+        }
+    }
+
+    /** Return a buffered writer to the file named NAME, encoding with
+     *  CHARSET. */
+    static Writer writer(String name, Charset charset) throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(
+            new FileOutputStream(name), charset), BUFFER_SIZE);
+    }
+
+    /** Number of characters in an output group. */
+    static final int GROUP = 5;
+    /** Longest ordinary message line. */
+    static final int SHORT_LINE = 100;
+    /** Longest long message line. */
+    static final int LONG_LINE = 20000;
+    /** One in LINE_KINDS lines is empty, and one is long. */
+    static final int LINE_KINDS = 50;
+    /** Longest word. */
+    static final int MAX_WORD = 9;
+    /** Bytes in a megabyte. */
+    static final long MEGABYTE = 1 << 20;
+    /** Seed used when none is given. */
+    static final long DEFAULT_SEED = 61;
+    /** Size of output buffers. */
+    static final int BUFFER_SIZE = 1 << 16;
+
+    /** The alphabet. */
+    static String _alphabet;
+    /** Rotor slots and pawls. */
+    static int _slots, _pawls;
+    /** Available rotors by name. */
+    static final Map<String, Wheel> _wheels = new HashMap<>();
+    /** Their names, in the order described. */
+    static final List<String> _names = new ArrayList<>();
+    /** Rotors inserted, reflector first. */
+    static Wheel[] _inserted;
+    /** Setting and ring setting of each slot. */
+    static int[] _posns, _rings;
+    /** Plugboard. */
+    static int[] _plugboard;
+}